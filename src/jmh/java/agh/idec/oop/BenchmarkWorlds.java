@@ -0,0 +1,36 @@
+package agh.idec.oop;
+
+/**
+ * Creates worlds used by benchmarks.
+ */
+final class BenchmarkWorlds {
+    private static final long SEED = 42;
+
+    /**
+     * Days simulated before measurement, so animals spread out from the center of map.
+     */
+    private static final int WARMUP_DAYS = 50;
+
+    private BenchmarkWorlds() {
+    }
+
+    /**
+     * Create wrapped square world with given population and plants growing every day.
+     * Animals start with energy for 1000 days, so after warmup population is at most about twice the starting one.
+     * World simulated for thousands of days reaches population fed by its plants whatever it started with,
+     * so benchmarks measure days of worlds loaded from checkpoint of created world.
+     *
+     * @param mapSize    Width and height of map.
+     * @param population Count of starting animals.
+     * @param plants     Count of plants growing every day in steppe and in jungle.
+     * @return World after warmup days.
+     */
+    static World create(int mapSize, int population, int plants) {
+        World world = new World(0, true, mapSize, mapSize, 0.2f, population, 1000, 1, 20,
+                plants, plants, false, SEED);
+        for (int i = 0; i < WARMUP_DAYS; i++) {
+            world.simulateDay();
+        }
+        return world;
+    }
+}
@@ -0,0 +1,208 @@
+package agh.idec.oop;
+
+import agh.idec.oop.utils.DayMetrics.Phase;
+import agh.idec.oop.utils.MapVisualizer;
+import agh.idec.oop.utils.WorldInformationLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures single phases of a day.<br>
+ * Every call runs a phase once on its own world, which is in the state the phase starts with:
+ * world is loaded from checkpoint of a warmed up world (saved at beginning of a day)
+ * and only phases preceding the measured one are run on it.
+ * Before every iteration (not measured) a batch of {@link #WORLDS} such worlds is prepared,
+ * and the iteration runs the phase once on each of them.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(batchSize = PhaseBenchmark.WORLDS)
+@Measurement(batchSize = PhaseBenchmark.WORLDS)
+public class PhaseBenchmark {
+    /**
+     * Worlds prepared for an iteration, one world of 500 x 500 fields takes about 30 MB.
+     */
+    static final int WORLDS = 10;
+
+    private static final Phase[] PHASES = Phase.values();
+
+    /**
+     * Worlds brought to the state in which given phase starts.
+     */
+    @State(Scope.Thread)
+    public abstract static class PhaseWorlds {
+        @Param({"100", "500"})
+        public int mapSize;
+
+        @Param({"1000", "20000"})
+        public int population;
+
+        @Param({"10", "100"})
+        public int plants;
+
+        private final Phase phase;
+        private final World[] worlds = new World[WORLDS];
+        private int next;
+        private Path checkpoint;
+
+        protected PhaseWorlds(Phase phase) {
+            this.phase = phase;
+        }
+
+        @Setup(Level.Trial)
+        public void saveWorld() throws IOException {
+            this.checkpoint = Files.createTempFile("phase-benchmark", ".ck");
+            BenchmarkWorlds.create(mapSize, population, plants).save(this.checkpoint);
+        }
+
+        @Setup(Level.Iteration)
+        public void prepareWorlds() throws IOException {
+            for (int i = 0; i < WORLDS; i++) {
+                World world = World.load(this.checkpoint);
+                for (int preceding = 0; PHASES[preceding] != this.phase; preceding++) {
+                    runPhase(world, PHASES[preceding]);
+                }
+                this.worlds[i] = world;
+            }
+            this.next = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void releaseWorlds() {
+            Arrays.fill(this.worlds, null);
+        }
+
+        @TearDown(Level.Trial)
+        public void deleteCheckpoint() throws IOException {
+            Files.deleteIfExists(this.checkpoint);
+        }
+
+        /**
+         * Return the next prepared world, iteration can not run more calls than {@link #WORLDS}.
+         */
+        World nextWorld() {
+            return this.worlds[this.next++];
+        }
+    }
+
+    /**
+     * Run phase of day as {@link World#simulateDay()} does, benchmark worlds have no magic days.
+     */
+    static void runPhase(World world, Phase phase) {
+        switch (phase) {
+            case LOGGING -> world.getLogger().log();
+            case DECISIONS -> world.makeDecisions();
+            case FEEDING -> world.feedAnimals();
+            case BREEDING -> world.breedAnimals();
+            case PLANT_GROWTH -> world.growPlants();
+            case ENERGY_DRAIN -> world.drainEnergies();
+            case DEATH_REMOVAL -> world.removeDeadAnimals();
+            default -> {
+            }
+        }
+    }
+
+    public static class DayStart extends PhaseWorlds {
+        public DayStart() {
+            super(Phase.LOGGING);
+        }
+    }
+
+    public static class Decisions extends PhaseWorlds {
+        public Decisions() {
+            super(Phase.DECISIONS);
+        }
+    }
+
+    public static class Feeding extends PhaseWorlds {
+        public Feeding() {
+            super(Phase.FEEDING);
+        }
+    }
+
+    public static class Breeding extends PhaseWorlds {
+        public Breeding() {
+            super(Phase.BREEDING);
+        }
+    }
+
+    public static class PlantGrowth extends PhaseWorlds {
+        public PlantGrowth() {
+            super(Phase.PLANT_GROWTH);
+        }
+    }
+
+    public static class EnergyDrain extends PhaseWorlds {
+        public EnergyDrain() {
+            super(Phase.ENERGY_DRAIN);
+        }
+    }
+
+    public static class DeathRemoval extends PhaseWorlds {
+        public DeathRemoval() {
+            super(Phase.DEATH_REMOVAL);
+        }
+    }
+
+    @Benchmark
+    public WorldInformationLogger log(DayStart worlds) {
+        WorldInformationLogger logger = worlds.nextWorld().getLogger();
+        logger.log();
+        return logger;
+    }
+
+    @Benchmark
+    public int makeDecisions(Decisions worlds) {
+        return worlds.nextWorld().makeDecisions();
+    }
+
+    @Benchmark
+    public int feedAnimals(Feeding worlds) {
+        return worlds.nextWorld().feedAnimals();
+    }
+
+    @Benchmark
+    public int breedAnimals(Breeding worlds) {
+        return worlds.nextWorld().breedAnimals();
+    }
+
+    @Benchmark
+    public World growPlants(PlantGrowth worlds) {
+        World world = worlds.nextWorld();
+        world.growPlants();
+        return world;
+    }
+
+    @Benchmark
+    public World drainEnergies(EnergyDrain worlds) {
+        World world = worlds.nextWorld();
+        world.drainEnergies();
+        return world;
+    }
+
+    @Benchmark
+    public int removeDeadAnimals(DeathRemoval worlds) {
+        return worlds.nextWorld().removeDeadAnimals();
+    }
+
+    @Benchmark
+    public String drawMap(DayStart worlds) {
+        return new MapVisualizer(worlds.nextWorld().getMap()).draw();
+    }
+}
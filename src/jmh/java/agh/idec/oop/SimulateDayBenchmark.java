@@ -0,0 +1,29 @@
+package agh.idec.oop;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures simulation of a whole day.<br>
+ * Every call simulates one day of its own world loaded from checkpoint of a warmed up world,
+ * so every measured day starts with population given by parameters.
+ * Worlds are prepared before every iteration in batches, as in {@link PhaseBenchmark}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(batchSize = PhaseBenchmark.WORLDS)
+@Measurement(batchSize = PhaseBenchmark.WORLDS)
+public class SimulateDayBenchmark {
+    @Benchmark
+    public World simulateDay(PhaseBenchmark.DayStart worlds) {
+        World world = worlds.nextWorld();
+        world.simulateDay();
+        return world;
+    }
+}
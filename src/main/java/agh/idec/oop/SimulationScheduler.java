@@ -0,0 +1,143 @@
+package agh.idec.oop;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs simulations on a shared pool of threads.<br>
+ * Ticks of a simulation are scheduled at fixed rate: next tick is planned relative to the planned time
+ * of previous one, so time spent in tick does not make simulation drift. If simulation falls behind
+ * by more than one period, missed ticks are dropped instead of being run in a burst.
+ * Simulation with period 0 is unthrottled, it is resubmitted right after every tick and shares
+ * threads fairly with other simulations.
+ */
+public class SimulationScheduler {
+    private static final SimulationScheduler SHARED = new SimulationScheduler(Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+    private final ScheduledThreadPoolExecutor executor;
+
+    /**
+     * Return scheduler shared by all worlds.
+     */
+    public static SimulationScheduler shared() {
+        return SHARED;
+    }
+
+    /**
+     * @param threads Count of threads running simulations.
+     */
+    public SimulationScheduler(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> {
+            Thread thread = new Thread(runnable, "simulation-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ScheduledThreadPoolExecutor(threads, factory);
+        this.executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Start running tick periodically.
+     *
+     * @param tick         Task run every tick, it is never run concurrently with itself.
+     * @param periodMillis Period between ticks in milliseconds, 0 for unthrottled simulation.
+     * @return Handle used to stop simulation.
+     */
+    public Handle start(Runnable tick, long periodMillis) {
+        if (periodMillis < 0) {
+            throw new IllegalArgumentException("Period can not be negative.");
+        }
+        Handle handle = new Handle(tick, TimeUnit.MILLISECONDS.toNanos(periodMillis));
+        handle.start();
+        return handle;
+    }
+
+    /**
+     * Stop all simulations and threads of scheduler.
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Handle of simulation started by scheduler.
+     */
+    public class Handle {
+        private final Runnable tick;
+        private final long periodNanos;
+
+        private volatile boolean cancelled = false;
+        private volatile ScheduledFuture<?> future;
+
+        /**
+         * Planned time of next tick (System.nanoTime).
+         */
+        private long nextTick;
+
+        private Handle(Runnable tick, long periodNanos) {
+            this.tick = tick;
+            this.periodNanos = periodNanos;
+        }
+
+        private synchronized void start() {
+            this.nextTick = System.nanoTime() + this.periodNanos;
+            this.future = executor.schedule(this::run, this.periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void run() {
+            if (this.cancelled) {
+                return;
+            }
+            try {
+                this.tick.run();
+            } catch (Throwable e) {
+                // errors (ex. OutOfMemoryError) stop simulation too, otherwise it would look running forever
+                this.cancelled = true;
+                e.printStackTrace();
+                if (e instanceof Error error) {
+                    throw error;
+                }
+                return;
+            }
+            scheduleNext();
+        }
+
+        private synchronized void scheduleNext() {
+            if (this.cancelled) {
+                return;
+            }
+            if (this.periodNanos == 0) {
+                this.future = executor.schedule(this::run, 0, TimeUnit.NANOSECONDS);
+                return;
+            }
+
+            long now = System.nanoTime();
+            this.nextTick += this.periodNanos;
+            if (this.nextTick < now - this.periodNanos) {
+                this.nextTick = now; // too far behind, skip missed ticks
+            }
+            this.future = executor.schedule(this::run, this.nextTick - now, TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Stop simulation. Tick in progress is finished, no further ticks are run.
+         */
+        public synchronized void cancel() {
+            this.cancelled = true;
+            if (this.future != null) {
+                this.future.cancel(false);
+            }
+        }
+
+        /**
+         * Check if simulation was stopped (by {@link #cancel()} or by exception or error thrown from tick).
+         */
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package agh.idec.oop;
 
-import java.util.Objects;
-
 public class Vector2D {
     private final int x;
     private final int y;
@@ -19,6 +17,31 @@ public class Vector2D {
         this.y = y;
     }
 
+    /**
+     * Pack coordinates into a single long, x in high and y in low 32 bits.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @return Packed position.
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Return x coordinate of position packed by {@link #pack(int, int)}.
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * Return y coordinate of position packed by {@link #pack(int, int)}.
+     */
+    public static int unpackY(long packed) {
+        return (int) packed;
+    }
+
     public Vector2D add(Vector2D other) {
         return new Vector2D(this.x + other.x, this.y + other.y);
     }
@@ -44,6 +67,6 @@ public class Vector2D {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return 31 * x + y;
     }
 }
@@ -1,25 +1,65 @@
 package agh.idec.oop;
 
 import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
+import agh.idec.oop.element.Genome;
+import agh.idec.oop.element.Occupants;
 import agh.idec.oop.element.Plant;
 import agh.idec.oop.field.Field;
 import agh.idec.oop.field.FieldType;
+import agh.idec.oop.map.ChunkedMap;
+import agh.idec.oop.map.ChunkedWrapAroundMap;
 import agh.idec.oop.map.IMap;
 import agh.idec.oop.map.NormalMap;
 import agh.idec.oop.map.WrapAroundMap;
+import agh.idec.oop.observables.IDayMetricsObserver;
 import agh.idec.oop.observables.IMagicDayObserver;
 import agh.idec.oop.observables.INextSimulatedDayObserver;
+import agh.idec.oop.utils.CheckpointReader;
+import agh.idec.oop.utils.CheckpointWriter;
+import agh.idec.oop.utils.DayMetrics;
+import agh.idec.oop.utils.DayMetrics.Phase;
+import agh.idec.oop.utils.EventJournalReplayer;
+import agh.idec.oop.utils.EventJournalWriter;
+import agh.idec.oop.utils.SplitRandom;
 import agh.idec.oop.utils.WorldInformationLogger;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
 
 public class World {
+    /**
+     * Minimal count of animals for which movement is planned in parallel.
+     */
+    private static final int PARALLEL_MOVES_THRESHOLD = 4096;
+
+    /**
+     * Maps with more fields are chunked, fields of their empty areas are not allocated.
+     */
+    private static final int CHUNKED_MAP_AREA = 1 << 22;
+
     private final IMap map;
     private final WorldInformationLogger logger;
 
     private final HashSet<INextSimulatedDayObserver> nextSimulatedDayObservers = new HashSet<>();
     private final HashSet<IMagicDayObserver> magicDayObservers = new HashSet<>();
+    private final HashSet<IDayMetricsObserver> dayMetricsObservers = new HashSet<>();
+
+    /**
+     * Metrics of current day, measured only if any {@link IDayMetricsObserver} is registered.
+     */
+    private final DayMetrics metrics = new DayMetrics();
+
+    /**
+     * Journal of events, null if events are not recorded.
+     */
+    private EventJournalWriter journal = null;
+
+    private final long seed;
+    private final SplitRandom random;
 
 
     private final float startEnergy;
@@ -36,11 +76,33 @@ public class World {
 
     private int day = 0;
 
-    private boolean isRunning = false;
+    private SimulationScheduler scheduler = SimulationScheduler.shared();
+    private volatile SimulationScheduler.Handle handle = null;
+
+    /**
+     * Guards simulation of a day, so ticks of stopped and resumed simulation never overlap.
+     */
+    private final Object dayLock = new Object();
 
+    /**
+     * The latest published snapshot, null until the first snapshot is acquired.
+     */
+    private final AtomicReference<WorldSnapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * Buffers of snapshots, usually three: published one, one being read and one being written.
+     */
+    private final ArrayList<WorldSnapshot> snapshots = new ArrayList<>();
+
+    /**
+     * @param seed Seed of all random decisions made in world, the same seed gives the same simulation.
+     */
     public World(long delay, boolean wrapAround, int width, int height, float jungleRatio, int startAnimals,
                  float startEnergy, float moveEnergy, float plantEnergy, int plantsSteppe, int plantsJungle,
-                 boolean isMagic) {
+                 boolean isMagic, long seed) {
+        this.seed = seed;
+        this.random = new SplitRandom(seed);
+
         // calculate jungle area
         int area = width * height;
         float sideRatio = (float) width / height;
@@ -49,12 +111,7 @@ public class World {
         int jungleWidth = (int) Math.floor(jungleHeight * sideRatio);
 
 
-        // wrap around or not
-        if (wrapAround) {
-            this.map = new WrapAroundMap(width, height, jungleWidth, jungleHeight);
-        } else {
-            this.map = new NormalMap(width, height, jungleWidth, jungleHeight);
-        }
+        this.map = createMap(wrapAround, width, height, jungleWidth, jungleHeight, this.random.splitSeed());
 
         this.delay = delay;
 
@@ -71,13 +128,7 @@ public class World {
         // place starting animals
         Vector2D center = new Vector2D((int) Math.floor(width / 2f), (int) Math.floor(height / 2f));
         for (int i = 0; i < startAnimals; i++) {
-            ArrayList<Integer> gene = new ArrayList<>();
-            Random rand = new Random();
-            for (int g = 0; g < Animal.GENOTYPE_SIZE; g++) {
-                gene.add(rand.nextInt(Animal.GENE_TYPE));
-            }
-
-            Animal animal = new Animal(this.map, center, gene, startEnergy);
+            Animal animal = new Animal(this.map, center, Genome.random(this.random), startEnergy);
             this.map.place(animal);
 
         }
@@ -87,6 +138,13 @@ public class World {
 
     }
 
+    public World(long delay, boolean wrapAround, int width, int height, float jungleRatio, int startAnimals,
+                 float startEnergy, float moveEnergy, float plantEnergy, int plantsSteppe, int plantsJungle,
+                 boolean isMagic) {
+        this(delay, wrapAround, width, height, jungleRatio, startAnimals, startEnergy, moveEnergy,
+                plantEnergy, plantsSteppe, plantsJungle, isMagic, new Random().nextLong());
+    }
+
     public World(long delay, boolean wrapAround, int width, int height, float jungleRatio,
                  int startAnimals, float startEnergy, float moveEnergy,
                  float plantEnergy, int plantsSteppe, int plantsJungle) {
@@ -94,6 +152,141 @@ public class World {
                 plantEnergy, plantsSteppe, plantsJungle, false);
     }
 
+    /**
+     * Create map of given size, maps with more than {@link #CHUNKED_MAP_AREA} fields are chunked.
+     * Kind of map depends only on its size, so it is not saved in checkpoint.
+     *
+     * @param wrapAround True if animals leaving map appear at its opposite side.
+     * @param seed       Seed of random streams of animals.
+     */
+    private static IMap createMap(boolean wrapAround, int width, int height, int jungleWidth, int jungleHeight,
+                                  long seed) {
+        boolean chunked = (long) width * height > CHUNKED_MAP_AREA;
+        if (wrapAround) {
+            return chunked ? new ChunkedWrapAroundMap(width, height, jungleWidth, jungleHeight, seed)
+                    : new WrapAroundMap(width, height, jungleWidth, jungleHeight, seed);
+        }
+        return chunked ? new ChunkedMap(width, height, jungleWidth, jungleHeight, seed)
+                : new NormalMap(width, height, jungleWidth, jungleHeight, seed);
+    }
+
+    /**
+     * Restore world from checkpoint, see {@link #save(Path)}.
+     */
+    private World(CheckpointReader in) throws IOException {
+        this.seed = in.getLong();
+        this.random = new SplitRandom(in.getLong());
+        this.delay = in.getLong();
+
+        boolean wrapAround = in.getBoolean();
+        int width = in.getInt();
+        int height = in.getInt();
+        int jungleWidth = in.getInt();
+        int jungleHeight = in.getInt();
+
+        this.startEnergy = in.getFloat();
+        this.moveEnergy = in.getFloat();
+        this.plantEnergy = in.getFloat();
+        this.plantsSteppe = in.getInt();
+        this.plantsJungle = in.getInt();
+        this.isMagic = in.getBoolean();
+        this.magicDays = in.getInt();
+        this.day = in.getInt();
+
+        // state of animal store (with its random generator) is read from checkpoint
+        this.map = createMap(wrapAround, width, height, jungleWidth, jungleHeight, 0);
+        this.map.readFrom(in, this.startEnergy);
+
+        this.logger = new WorldInformationLogger(this);
+        this.logger.readFrom(in);
+    }
+
+    /**
+     * Save complete state of world to binary checkpoint file. Day in progress is finished first.<br>
+     * World loaded from checkpoint continues exactly as this one, observers are not saved.
+     *
+     * @param path Path of checkpoint file.
+     */
+    public void save(Path path) throws IOException {
+        synchronized (this.dayLock) {
+            try (CheckpointWriter out = new CheckpointWriter(path)) {
+                out.putLong(this.seed);
+                out.putLong(this.random.getState());
+                out.putLong(this.delay);
+
+                out.putBoolean(this.map instanceof WrapAroundMap || this.map instanceof ChunkedWrapAroundMap);
+                out.putInt(this.map.getWidth());
+                out.putInt(this.map.getHeight());
+                out.putInt(this.map.getJungleWidth());
+                out.putInt(this.map.getJungleHeight());
+
+                out.putFloat(this.startEnergy);
+                out.putFloat(this.moveEnergy);
+                out.putFloat(this.plantEnergy);
+                out.putInt(this.plantsSteppe);
+                out.putInt(this.plantsJungle);
+                out.putBoolean(this.isMagic);
+                out.putInt(this.magicDays);
+                out.putInt(this.day);
+
+                this.map.writeTo(out);
+                this.logger.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * Load world from checkpoint file written by {@link #save(Path)}. Loaded world is stopped.
+     *
+     * @param path Path of checkpoint file.
+     * @return Restored world.
+     * @throws IOException If file can not be read or is not a checkpoint.
+     */
+    public static World load(Path path) throws IOException {
+        try (CheckpointReader in = new CheckpointReader(path)) {
+            return new World(in);
+        }
+    }
+
+    /**
+     * Start recording events of following days to append-only journal file.
+     * Current state is saved to checkpoint next to journal (see {@link EventJournalReplayer#checkpointOf(Path)}),
+     * so {@link EventJournalReplayer} can rebuild state of every recorded day.
+     * Journal already being written is closed.
+     *
+     * @param path Path of journal file.
+     */
+    public void startJournal(Path path) throws IOException {
+        synchronized (this.dayLock) {
+            stopJournal();
+            save(EventJournalReplayer.checkpointOf(path));
+            this.journal = new EventJournalWriter(path, this.day, this.map.getWidth(), this.map.getHeight(),
+                    this.startEnergy, this.moveEnergy, this.plantEnergy);
+        }
+    }
+
+    /**
+     * Stop recording events and close journal file, does nothing if journal is not written.
+     */
+    public void stopJournal() throws IOException {
+        synchronized (this.dayLock) {
+            if (this.journal != null) {
+                EventJournalWriter journal = this.journal;
+                this.journal = null;
+                journal.close();
+            }
+        }
+    }
+
+    /**
+     * Return seed of world.
+     *
+     * @return Seed as long.
+     */
+    public long getSeed() {
+        return this.seed;
+    }
+
     /**
      * Return current day of simulation.
      *
@@ -105,30 +298,32 @@ public class World {
 
 
     /**
-     * Resume simulation at World.
+     * Set scheduler used to run simulation, it will be used on next {@link #run()}.
+     *
+     * @param scheduler Scheduler of simulation.
+     */
+    public void setScheduler(SimulationScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Resume simulation at World. Days are simulated every delay milliseconds
+     * or back to back if delay is 0.
      */
-    public void run() {
-        if (!this.isRunning) {
-            this.isRunning = true;
-            new Thread(() -> {
-                while (this.isRunning) {
-                    try {
-                        //noinspection BusyWait
-                        Thread.sleep(delay);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                    simulateDay();
-                }
-            }).start();
+    public synchronized void run() {
+        if (!isRunning()) {
+            this.handle = this.scheduler.start(this::simulateDay, this.delay);
         }
     }
 
     /**
-     * Pause simulation at World.
+     * Pause simulation at World. Day in progress is finished.
      */
-    public void stop() {
-        this.isRunning = false;
+    public synchronized void stop() {
+        if (this.handle != null) {
+            this.handle.cancel();
+            this.handle = null;
+        }
     }
 
     /**
@@ -137,14 +332,86 @@ public class World {
      * @return True if simulation is running otherwise false.
      */
     public boolean isRunning() {
-        return isRunning;
+        SimulationScheduler.Handle handle = this.handle;
+        return handle != null && !handle.isCancelled();
+    }
+
+    /**
+     * Run action while no day is simulated, state of world does not change until action returns.
+     * Used to read state of running world from another thread, action should be short.
+     *
+     * @param action Action reading state of world.
+     */
+    public void inspect(Runnable action) {
+        synchronized (this.dayLock) {
+            action.run();
+        }
+    }
+
+    /**
+     * Return the latest snapshot of world, it has to be released after use.
+     * Snapshots are published at the end of every day once the first one was acquired.
+     *
+     * @return Acquired snapshot.
+     */
+    public WorldSnapshot acquireSnapshot() {
+        if (this.snapshot.get() == null) {
+            publishSnapshot();
+        }
+        while (true) {
+            WorldSnapshot snapshot = this.snapshot.get();
+            snapshot.retain();
+            // snapshot could be replaced and reused before it was retained
+            if (this.snapshot.get() == snapshot) {
+                return snapshot;
+            }
+            snapshot.release();
+        }
+    }
+
+    /**
+     * Publish snapshot of current state of world.
+     * It is done automatically at the end of every day, state changed otherwise (ex. by replaying events)
+     * has to be published explicitly.
+     */
+    public void publishSnapshot() {
+        synchronized (this.dayLock) {
+            publishSnapshotLocked();
+        }
+    }
+
+    private void publishSnapshotLocked() {
+        WorldSnapshot current = this.snapshot.get();
+        WorldSnapshot free = null;
+        for (WorldSnapshot buffer : this.snapshots) {
+            if (buffer != current && buffer.isReleased()) {
+                free = buffer;
+                break;
+            }
+        }
+        if (free == null) {
+            // all buffers are read, new one is added instead of waiting for readers
+            free = new WorldSnapshot();
+            this.snapshots.add(free);
+        }
+        free.capture(this);
+        this.snapshot.set(free);
     }
 
     /**
      * Start new day in world
      */
     public void simulateDay() {
+        synchronized (this.dayLock) {
+            simulateDayLocked();
+        }
+    }
 
+    private void simulateDayLocked() {
+        DayMetrics metrics = this.dayMetricsObservers.isEmpty() ? null : this.metrics;
+        if (metrics != null) {
+            metrics.begin(this.day);
+        }
 
         this.logger.log();
 //        // debug
@@ -156,118 +423,172 @@ public class World {
 //        System.out.println("Average children count: " + this.logger.getAverageChildrenCount());
 //
 //        System.out.println();
+        lap(metrics, Phase.LOGGING);
 
         if (isMagic && magicDays > 0 && this.map.getAnimals().size() == 5) {
-            List<Field> fieldsSorted = new ArrayList<>(this.map.getFields().values().stream().filter(field -> !field.isEmpty()).toList());
-
-            Collections.shuffle(fieldsSorted);
-            Iterator<Field> iter = fieldsSorted.iterator();
-
-            ArrayList<Animal> animals = new ArrayList<>();
-            for (Animal oldAnimal : this.map.getAnimals()) {
-                if (iter.hasNext()) {
-                    Vector2D position = iter.next().getPosition();
-                    Animal animal = new Animal(this.map, position, new ArrayList<>(oldAnimal.getGenotype()), startEnergy);
-                    animals.add(animal);
-                } else {
+            // clone every animal to a random free field
+            int clones = 0;
+            for (Animal oldAnimal : new ArrayList<>(this.map.getAnimals())) {
+                Field field = this.map.randomFreeField(this.random);
+                if (field == null) {
                     break;
                 }
-            }
-
-            animals.forEach(animal -> {
+                Animal animal = new Animal(this.map, field.getPosition(), oldAnimal.getGenome(), startEnergy);
                 this.map.place(animal);
-                this.logger.startLife(animal);
-            });
+                clones++;
+                if (this.journal != null) {
+                    this.journal.clone(oldAnimal.getSlot(), animal.getX(), animal.getY());
+                }
+            }
 
 //            System.out.println("MAGIC DAY");
             this.magicDay();
             magicDays--;
-        }
 
-        makeDecisions();
-        feedAnimals();
-        breedAnimals();
+            if (metrics != null) {
+                metrics.addBirths(clones);
+            }
+        }
+        lap(metrics, Phase.MAGIC_DAY);
+
+        int moves = makeDecisions();
+        lap(metrics, Phase.DECISIONS);
+        int plantsEaten = feedAnimals();
+        lap(metrics, Phase.FEEDING);
+        int births = breedAnimals();
+        lap(metrics, Phase.BREEDING);
         growPlants();
+        lap(metrics, Phase.PLANT_GROWTH);
         drainEnergies();
+        lap(metrics, Phase.ENERGY_DRAIN);
 
-        removeDeadAnimals();
+        int deaths = removeDeadAnimals();
+        if (this.journal != null) {
+            this.journal.endDay(this.day);
+        }
+        lap(metrics, Phase.DEATH_REMOVAL);
         nextSimulatedDay();
+        lap(metrics, Phase.OBSERVERS);
 
         day++;
-        this.logger.nextDay();
+        this.map.getAnimalStore().setDay(day);
+
+        lap(metrics, Phase.LOGGING);
+
+        if (this.snapshot.get() != null) {
+            publishSnapshotLocked();
+        }
+        lap(metrics, Phase.SNAPSHOT);
+
+        if (metrics != null) {
+            metrics.addMoves(moves);
+            metrics.addPlantsEaten(plantsEaten);
+            metrics.addBirths(births);
+            metrics.addDeaths(deaths);
+            dayMetrics(metrics);
+        }
 
 //        this.drawMap();
     }
 
+    private static void lap(DayMetrics metrics, Phase phase) {
+        if (metrics != null) {
+            metrics.lap(phase);
+        }
+    }
+
     /**
      * Remove energy from all animals on the map.
      * Value is based on move energy parameter.
      */
-    private void drainEnergies() {
-        for (Animal animal : this.map.getAnimals()) {
-            animal.removeEnergy(this.moveEnergy);
-        }
+    void drainEnergies() {
+        this.map.getAnimalStore().drainEnergy(this.moveEnergy);
     }
 
     /**
      * Remove all animals with 0 or less energy.
+     *
+     * @return Count of removed animals.
      */
-    private void removeDeadAnimals() {
-        ArrayList<Animal> animals = new ArrayList<>();
-        for (Animal animal : this.map.getAnimals()) {
-            if (animal.getEnergy() <= 0) {
-                animals.add(animal);
+    int removeDeadAnimals() {
+        int deaths = 0;
+        AnimalStore animals = this.map.getAnimalStore();
+
+        // iterate backwards, slot of removed animal is taken by the last (already checked) one
+        for (int slot = animals.size() - 1; slot >= 0; slot--) {
+            if (animals.getEnergy(slot) <= 0) {
+                Animal animal = animals.get(slot);
+                if (this.journal != null) {
+                    this.journal.death(slot);
+                }
+                this.logger.endLife(animal);
+                animal.selectedAnimalDeath();
+                this.map.pop(animal);
+                deaths++;
             }
         }
-
-        for (Animal animal : animals) {
-            this.logger.endLife(animal);
-            animal.selectedAnimalDeath();
-            this.map.pop(animal);
-        }
+        return deaths;
     }
 
 
     /**
      * Let every animal decide what to do based
-     * on its gene.
+     * on its gene.<br>
+     * Moves of large populations are planned in parallel, then fields are updated
+     * sequentially in order of animals, so result does not depend on count of threads.
+     *
+     * @return Count of animals which changed position.
      */
-    private void makeDecisions() {
-        for (Animal animal : this.map.getAnimals()) {
-            animal.decide();
+    int makeDecisions() {
+        AnimalStore animals = this.map.getAnimalStore();
+        int count = animals.size();
+
+        IntStream slots = IntStream.range(0, count);
+        if (count >= PARALLEL_MOVES_THRESHOLD) {
+            slots = slots.parallel();
         }
+        slots.forEach(slot -> animals.get(slot).planMove());
+
+        int moves = 0;
+        for (int slot = 0; slot < count; slot++) {
+            Animal animal = animals.get(slot);
+            if (this.journal == null) {
+                if (animal.commitMove()) {
+                    moves++;
+                }
+            } else {
+                int oldX = animal.getX();
+                int oldY = animal.getY();
+                if (animal.commitMove()) {
+                    moves++;
+                    this.journal.move(slot, animal.getX() - oldX, animal.getY() - oldY);
+                }
+            }
+        }
+        return moves;
     }
 
     /**
      * Feed the strongest animal on plant field.
+     *
+     * @return Count of eaten plants.
      */
-    private void feedAnimals() {
+    int feedAnimals() {
         ArrayList<Plant> plants = new ArrayList<>();
 
         for (Plant plant : this.map.getPlants()) {
-            Vector2D position = plant.getPosition();
-            PriorityQueue<Animal> animals = this.map.getAnimalsAt(position);
-            List<Animal> strongestAnimals = new ArrayList<>();
-            Iterator<Animal> iter = animals.iterator();
-
-            if (iter.hasNext()) { // ad the strongest animal at that position
-                Animal animal = iter.next();
-                float energy = animal.getEnergy();
-                strongestAnimals.add(animal);
-
-                while (iter.hasNext()) {
-                    animal = iter.next();
-                    if (animal.getEnergy() == energy) { //next animal in order same energy as the strongest
-                        strongestAnimals.add(animal);
-                    } else {
-                        break; //next animal smaller energy than the strongest
-                    }
-                }
-            }
+            Occupants animals = this.map.getAnimalsAt(plant.getPosition());
+            int strongest = animals.selectStrongest(); // animals with the same highest energy share the plant
 
-            if (strongestAnimals.size() > 0) { // at least one animal at position
-                for (Animal animal : strongestAnimals) {
-                    animal.addEnergy(plantEnergy / strongestAnimals.size());
+            if (strongest > 0) { // at least one animal at position
+                if (this.journal != null) {
+                    this.journal.feeding(plant.getPosition().getX(), plant.getPosition().getY(), strongest);
+                }
+                for (int i = 0; i < strongest; i++) {
+                    animals.get(i).addEnergy(plantEnergy / strongest);
+                    if (this.journal != null) {
+                        this.journal.eater(animals.get(i).getSlot());
+                    }
                 }
 
                 plants.add(plant);
@@ -277,76 +598,74 @@ public class World {
         for (Plant plant : plants) {
             this.map.pop(plant);
         }
+        return plants.size();
     }
 
     /**
      * Breed animals on map.
+     *
+     * @return Count of newborn animals.
      */
-    private void breedAnimals() {
-        // set of positions where animals exist (animals fed).
-        HashSet<Vector2D> positions = new HashSet<>();
-
-        for (Animal animal : this.map.getAnimals()) {
-            if (animal.getEnergy() > 0.5 * this.startEnergy) {
-                positions.add(animal.getPosition());
+    int breedAnimals() {
+        int births = 0;
+        // fields where animals with enough energy exist (animals fed), in order of animals.
+        LinkedHashSet<Field> fields = new LinkedHashSet<>();
+
+        AnimalStore store = this.map.getAnimalStore();
+        for (int slot = 0; slot < store.size(); slot++) {
+            if (store.getEnergy(slot) > 0.5 * this.startEnergy) {
+                fields.add(this.map.fieldAt(store.get(slot).getPosition()));
             }
         }
 
-        for (Vector2D position : positions) {
-            PriorityQueue<Animal> animals = this.map.getAnimalsAt(position);
-
-            Iterator<Animal> iter = animals.iterator();
-
-            if (iter.hasNext()) {
-                Animal strong1 = iter.next();
-                if (iter.hasNext()) {
-                    Animal strong2 = iter.next();
-
-                    // now we provided 2 animals with the highest energy at position
-                    // (we only know the first one provide required energy for bread)
-                    Animal newborn = strong1.breed(strong2); //breed function return newborn if both provide required energy
-                    if (newborn != null) {
-                        this.map.place(newborn);
-
-                        this.logger.startLife(newborn);
-                        this.logger.newChild(strong1);
-                        this.logger.newChild(strong2);
+        for (Field field : fields) {
+            Occupants animals = field.getAnimals();
+
+            if (animals.selectTop(2) == 2) {
+                Animal strong1 = animals.get(0);
+                Animal strong2 = animals.get(1);
+
+                // now we provided 2 animals with the highest energy at position
+                // (we only know the first one provide required energy for bread)
+                Animal newborn = strong1.breed(strong2); //breed function return newborn if both provide required energy
+                if (newborn != null) {
+                    this.map.place(newborn);
+                    births++;
+                    if (this.journal != null) {
+                        this.journal.birth(strong1.getSlot(), strong2.getSlot(), newborn.getGenome());
                     }
                 }
             }
         }
-
+        return births;
     }
 
 
     /**
      * Grow plants on map based on field type.
      */
-    private void growPlants() {
-        HashMap<Vector2D, Field> fields = this.map.getFields();
-        ArrayList<Field> steppeFields = fields.values().stream().filter(field -> field.getType() == FieldType.STEPPE && !field.hasAnimal() && !field.hasPlant()).collect(Collectors.toCollection(ArrayList::new));
-        ArrayList<Field> jungleFields = fields.values().stream().filter(field -> field.getType() == FieldType.JUNGLE && !field.hasAnimal() && !field.hasPlant()).collect(Collectors.toCollection(ArrayList::new));
-
-
-        Collections.shuffle(steppeFields); // randomize grass generation
-        Collections.shuffle(jungleFields); // randomize grass generation
-
-        Iterator<Vector2D> iter = steppeFields.stream().map(Field::getPosition).iterator();
-        int i = 0;
-        while (iter.hasNext() && i < this.plantsSteppe) {
-            Vector2D position = iter.next();
-            this.map.place(new Plant(position));
-            i++;
-        }
+    void growPlants() {
+        growPlants(FieldType.STEPPE, this.plantsSteppe);
+        growPlants(FieldType.JUNGLE, this.plantsJungle);
+    }
 
-        iter = jungleFields.stream().map(Field::getPosition).iterator();
-        i = 0;
-        while (iter.hasNext() && i < this.plantsJungle) {
-            Vector2D position = iter.next();
-            this.map.place(new Plant(position));
-            i++;
+    /**
+     * Grow plants on random free fields of given type.
+     *
+     * @param type  Type of fields where plants grow.
+     * @param count Maximal count of plants to grow.
+     */
+    private void growPlants(FieldType type, int count) {
+        for (int i = 0; i < count; i++) {
+            Field field = this.map.randomFreeField(type, this.random); // placed plant removes field from free fields
+            if (field == null) {
+                break;
+            }
+            this.map.place(new Plant(field.getPosition()));
+            if (this.journal != null) {
+                this.journal.plant(field.getPosition().getX(), field.getPosition().getY());
+            }
         }
-
     }
 
     /**
@@ -399,6 +718,41 @@ public class World {
         }
     }
 
+    /**
+     * Register observer of day metrics. Metrics are measured only while any observer is registered.
+     *
+     * @param observer Observer of metrics.
+     */
+    public void addDayMetricsObserver(IDayMetricsObserver observer) {
+        synchronized (this.dayLock) {
+            this.dayMetricsObservers.add(observer);
+        }
+    }
+
+    public void removeDayMetricsObserver(IDayMetricsObserver observer) {
+        synchronized (this.dayLock) {
+            this.dayMetricsObservers.remove(observer);
+        }
+    }
+
+    /**
+     * Enable or disable counting of memory allocated in phases of day.
+     *
+     * @param allocationTracking True to count allocated memory, ignored if not supported by JVM.
+     * @see DayMetrics#isAllocationTrackingSupported()
+     */
+    public void setAllocationTracking(boolean allocationTracking) {
+        synchronized (this.dayLock) {
+            this.metrics.setAllocationTracking(allocationTracking);
+        }
+    }
+
+    private void dayMetrics(DayMetrics metrics) {
+        for (var observer : dayMetricsObservers) {
+            observer.onDayMetrics(this, metrics);
+        }
+    }
+
     /**
      * Logs preview of animals and grasses at world map.
      */
@@ -0,0 +1,236 @@
+package agh.idec.oop;
+
+import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
+import agh.idec.oop.element.Genome;
+import agh.idec.oop.element.Plant;
+import agh.idec.oop.map.IMap;
+import agh.idec.oop.utils.WorldInformationLogger;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * State of world at the end of a day, published by {@link World} for readers on other threads.<br>
+ * Snapshot is acquired by {@link World#acquireSnapshot()} and has to be {@link #release() released}.
+ * Arrays of snapshot are reused: world writes the next snapshot into a released buffer which is not published,
+ * so readers never see a half written state and simulation never waits for them.
+ * Content of snapshot must not be modified by readers.
+ */
+public class WorldSnapshot {
+    private final AtomicInteger references = new AtomicInteger();
+
+    private int day;
+    private int magicDay;
+
+    // animals in order of slots, fields are given as index y * width + x
+    private int animalsCount;
+    private Animal[] animals = new Animal[0];
+    private int[] animalFields = new int[0];
+    private float[] energies = new float[0];
+    private float maxEnergy;
+
+    private int plantsCount;
+    private int[] plantFields = new int[0];
+
+    // fields of animals with dominant genome
+    private int dominantCount;
+    private int[] dominantFields = new int[0];
+
+    private int loggedAnimalsCount;
+    private int loggedPlantsCount;
+    private float averageEnergy;
+    private float averageLifeLength;
+    private float averageChildrenCount;
+    private Genome dominantGenome;
+
+    /**
+     * Copy state of world, called by world while no day is simulated.
+     */
+    void capture(World world) {
+        IMap map = world.getMap();
+        int width = map.getWidth();
+        AnimalStore store = map.getAnimalStore();
+        WorldInformationLogger logger = world.getLogger();
+
+        this.day = world.getDay();
+        this.magicDay = world.getMagicDay();
+
+        this.animalsCount = store.size();
+        if (this.animals.length < this.animalsCount) {
+            int capacity = Math.max(this.animalsCount, this.animals.length * 2);
+            this.animals = new Animal[capacity];
+            this.animalFields = new int[capacity];
+            this.energies = new float[capacity];
+            this.dominantFields = new int[capacity];
+        }
+
+        Genome dominant = logger.getDominantGenome();
+        this.maxEnergy = 0;
+        this.dominantCount = 0;
+        for (int slot = 0; slot < this.animalsCount; slot++) {
+            Animal animal = store.get(slot);
+            int field = animal.getY() * width + animal.getX();
+            this.animals[slot] = animal;
+            this.animalFields[slot] = field;
+            this.energies[slot] = store.getEnergy(slot);
+            this.maxEnergy = Math.max(this.maxEnergy, this.energies[slot]);
+            if (store.getGenome(slot).equals(dominant)) {
+                this.dominantFields[this.dominantCount++] = field;
+            }
+        }
+        // do not keep dead animals reachable
+        Arrays.fill(this.animals, this.animalsCount, this.animals.length, null);
+
+        this.plantsCount = map.getPlants().size();
+        if (this.plantFields.length < this.plantsCount) {
+            this.plantFields = new int[Math.max(this.plantsCount, this.plantFields.length * 2)];
+        }
+        int plant = 0;
+        for (Plant p : map.getPlants()) {
+            this.plantFields[plant++] = p.getPosition().getY() * width + p.getPosition().getX();
+        }
+
+        this.loggedAnimalsCount = logger.getAnimalsCount();
+        this.loggedPlantsCount = logger.getPlantsCount();
+        this.averageEnergy = logger.getAverageEnergy();
+        this.averageLifeLength = logger.getAverageAnimalsLifeLength();
+        this.averageChildrenCount = logger.getAverageChildrenCount();
+        this.dominantGenome = dominant;
+    }
+
+    /**
+     * Try to take reference to snapshot.
+     */
+    void retain() {
+        this.references.incrementAndGet();
+    }
+
+    /**
+     * Check if snapshot is not used by any reader and can be overwritten.
+     */
+    boolean isReleased() {
+        return this.references.get() == 0;
+    }
+
+    /**
+     * Give back snapshot acquired by {@link World#acquireSnapshot()}, it must not be used afterwards.
+     */
+    public void release() {
+        if (this.references.decrementAndGet() < 0) {
+            throw new IllegalStateException("Snapshot was released more times than acquired.");
+        }
+    }
+
+    /**
+     * Return day of world when snapshot was taken.
+     */
+    public int getDay() {
+        return this.day;
+    }
+
+    /**
+     * Return number of magic day that occurred until snapshot.
+     */
+    public int getMagicDay() {
+        return this.magicDay;
+    }
+
+    /**
+     * Return count of animals.
+     */
+    public int getAnimalsCount() {
+        return this.animalsCount;
+    }
+
+    /**
+     * Return animal at given index, only for identification (its state may have changed since snapshot).
+     *
+     * @param i Index from 0 to count of animals - 1.
+     */
+    public Animal getAnimal(int i) {
+        return this.animals[i];
+    }
+
+    /**
+     * Return field index (y * width + x) of i-th animal.
+     */
+    public int getAnimalField(int i) {
+        return this.animalFields[i];
+    }
+
+    /**
+     * Return energy of i-th animal.
+     */
+    public float getEnergy(int i) {
+        return this.energies[i];
+    }
+
+    /**
+     * Return the highest energy of animals.
+     */
+    public float getMaxEnergy() {
+        return this.maxEnergy;
+    }
+
+    /**
+     * Return count of plants.
+     */
+    public int getPlantsCount() {
+        return this.plantsCount;
+    }
+
+    /**
+     * Return field index (y * width + x) of i-th plant.
+     */
+    public int getPlantField(int i) {
+        return this.plantFields[i];
+    }
+
+    /**
+     * Return count of animals with dominant genome.
+     */
+    public int getDominantCount() {
+        return this.dominantCount;
+    }
+
+    /**
+     * Return field index (y * width + x) of i-th animal with dominant genome.
+     */
+    public int getDominantField(int i) {
+        return this.dominantFields[i];
+    }
+
+    /**
+     * Return count of animals logged by {@link WorldInformationLogger}.
+     */
+    public int getLoggedAnimalsCount() {
+        return this.loggedAnimalsCount;
+    }
+
+    /**
+     * Return count of plants logged by {@link WorldInformationLogger}.
+     */
+    public int getLoggedPlantsCount() {
+        return this.loggedPlantsCount;
+    }
+
+    public float getAverageEnergy() {
+        return this.averageEnergy;
+    }
+
+    public float getAverageLifeLength() {
+        return this.averageLifeLength;
+    }
+
+    public float getAverageChildrenCount() {
+        return this.averageChildrenCount;
+    }
+
+    /**
+     * Return dominant genome or null if there are no animals.
+     */
+    public Genome getDominantGenome() {
+        return this.dominantGenome;
+    }
+}
@@ -2,48 +2,142 @@ package agh.idec.oop.element;
 
 import agh.idec.oop.Vector2D;
 import agh.idec.oop.map.IMap;
-import agh.idec.oop.map.WrapAroundMap;
 import agh.idec.oop.observables.IPositionChangedObserver;
 import agh.idec.oop.observables.ISelectedAnimalActionsObserver;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Random;
+import java.util.List;
 
-import static agh.idec.oop.element.MapDirection.N;
+/**
+ * View of an animal stored in map's {@link AnimalStore}.
+ * State of animal (energy, position, direction, genotype) is kept in store's columns.
+ */
+public class Animal implements IMapElement {
 
-public class Animal extends AbstractMapElement {
+    private static final MapDirection[] DIRECTIONS = MapDirection.values();
 
     private final float startEnergy;
 
     public static final int GENOTYPE_SIZE = 32;
     public static final int GENE_TYPE = 8;
 
-    private final ArrayList<Integer> genotype;
-    private float energy;
-    private MapDirection direction = N.next(new Random().nextInt(8));
-
     private final IMap map;
-    private final HashSet<IPositionChangedObserver> positionChangedObserversobservers = new HashSet<>();
-    private final HashSet<ISelectedAnimalActionsObserver> selectedAnimalActionsObservers = new HashSet<>();
+    private final AnimalStore store;
+    private final int id;
 
-    public Animal(IMap map, Vector2D position, ArrayList<Integer> genotype, float energy) {
-        super(position);
+    /**
+     * Row of animal in store, -1 when animal was removed from store.
+     */
+    int slot;
 
-        // validate genotype
-        if (genotype.size() != GENOTYPE_SIZE) {
-            throw new IllegalArgumentException("Gene has no proper amount of genomes.");
-        }
-        for (Integer gene : genotype) {
-            if (gene < 0 || gene > 7) {
-                throw new IllegalArgumentException("Values of genotype are not valid.");
-            }
-        }
-        this.genotype = genotype;
+    /**
+     * Index of animal in {@link Occupants} of its field, -1 when animal is not on field.
+     */
+    int fieldSlot = -1;
+
+    /**
+     * Index of animal among animals with the same genome in {@link GenotypeIndex}.
+     */
+    int genomeSlot = -1;
+
+    // observers are rare, collections are created on first registration,
+    // position observers are in a list, so notifying them on every move does not allocate an iterator
+    private ArrayList<IPositionChangedObserver> positionChangedObserversobservers = null;
+    private HashSet<ISelectedAnimalActionsObserver> selectedAnimalActionsObservers = null;
+
+    public Animal(IMap map, Vector2D position, List<Integer> genotype, float energy) {
+        this(map, position, Genome.of(genotype), energy);
+    }
 
-        this.energy = energy;
+    public Animal(IMap map, Vector2D position, Genome genome, float energy) {
         this.startEnergy = energy;
         this.map = map;
+        this.store = map.getAnimalStore();
+        this.slot = this.store.add(this, position.getX(), position.getY(), genome, energy);
+        this.id = this.store.ids[this.slot];
+    }
+
+    /**
+     * Create view of row already filled in store, used to restore checkpoint.
+     */
+    Animal(IMap map, int slot, float startEnergy) {
+        this.startEnergy = startEnergy;
+        this.map = map;
+        this.store = map.getAnimalStore();
+        this.slot = slot;
+        this.id = this.store.ids[slot];
+    }
+
+    /**
+     * Return identifier of animal, unique within its map.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Check if animal is still stored at map.
+     *
+     * @return False if animal was removed from map.
+     */
+    public boolean isAlive() {
+        return this.slot >= 0;
+    }
+
+    /**
+     * Return row of animal in map's {@link AnimalStore}.
+     * Row changes when another animal is removed from store, so it identifies animal only within a day phase.
+     *
+     * @return Slot of animal or -1 if animal was removed from map.
+     */
+    public int getSlot() {
+        return this.slot;
+    }
+
+    /**
+     * Return slot of animal, throw if animal was removed from map.
+     */
+    private int slot() {
+        if (this.slot < 0) {
+            throw new IllegalStateException("Animal was removed from map.");
+        }
+        return this.slot;
+    }
+
+    private MapDirection getDirection() {
+        return DIRECTIONS[this.store.directions[slot()]];
+    }
+
+    private void setDirection(MapDirection direction) {
+        this.store.directions[slot()] = (byte) direction.ordinal();
+    }
+
+    @Override
+    public Vector2D getPosition() {
+        int slot = slot();
+        return new Vector2D(this.store.xs[slot], this.store.ys[slot]);
+    }
+
+    /**
+     * Return x coordinate of animal's position.
+     */
+    public int getX() {
+        return this.store.xs[slot()];
+    }
+
+    /**
+     * Return y coordinate of animal's position.
+     */
+    public int getY() {
+        return this.store.ys[slot()];
+    }
+
+    @Override
+    public void setPosition(Vector2D position) {
+        int slot = slot();
+        this.store.xs[slot] = position.getX();
+        this.store.ys[slot] = position.getY();
     }
 
     /**
@@ -51,47 +145,91 @@ public class Animal extends AbstractMapElement {
      * and move/rotate using that direction.
      */
     public void decide() {
-        Random rand = new Random();
-        int decision = genotype.get(rand.nextInt(GENOTYPE_SIZE));
+        this.planMove();
+        this.commitMove();
+    }
+
+    /**
+     * Generate direction based on a genotype of the Animal using animal's own random stream.
+     * Rotation is applied immediately, movement is only planned and is applied by {@link #commitMove()}.<br>
+     * Only state of this animal is modified, so different animals can plan moves concurrently.
+     */
+    public void planMove() {
+        int slot = slot();
+        int decision = this.store.genomes[slot].gene(this.store.nextInt(slot, GENOTYPE_SIZE));
         MoveDirection direction = this.mapIntToDirection(decision);
-//        System.out.println(this.getPosition() + " " + this.direction + " " + direction);
 
+        this.store.moving[slot] = false;
         this.move(direction);
     }
 
     /**
-     * Move or rotate animal with given direction.
+     * Apply move planned by {@link #planMove()} and inform observers about new position.
+     *
+     * @return True if animal has moved.
+     */
+    public boolean commitMove() {
+        int slot = slot();
+        if (!this.store.moving[slot]) {
+            return false;
+        }
+        this.store.moving[slot] = false;
+
+        int oldX = this.store.xs[slot];
+        int oldY = this.store.ys[slot];
+        this.store.xs[slot] = this.store.nextXs[slot];
+        this.store.ys[slot] = this.store.nextYs[slot];
+        positionChanged(oldX, oldY);
+        return true;
+    }
+
+    /**
+     * Move animal to given position (without checking map's bounds) and inform observers about new position.
+     * Used to replay recorded moves.
+     */
+    public void moveTo(int x, int y) {
+        int slot = slot();
+        int oldX = this.store.xs[slot];
+        int oldY = this.store.ys[slot];
+        this.store.xs[slot] = x;
+        this.store.ys[slot] = y;
+        positionChanged(oldX, oldY);
+    }
+
+    /**
+     * Plan move or rotate animal with given direction.
      *
      * @param direction Direction where to move or rotate animal.
      */
     private void move(MoveDirection direction) {
+        MapDirection current = this.getDirection();
         switch (direction) {
-            case FORWARD -> moveToVector(this.getPosition().add(this.direction.toUnitVector()));
-            case BACKWARD -> moveToVector(this.getPosition().subtract(this.direction.toUnitVector()));
-            case ROTATE45 -> this.direction = this.direction.next(1);
-            case ROTATE90 -> this.direction = this.direction.next(2);
-            case ROTATE135 -> this.direction = this.direction.next(3);
-            case ROTATE225 -> this.direction = this.direction.previous(1);
-            case ROTATE270 -> this.direction = this.direction.previous(2);
-            case ROTATE315 -> this.direction = this.direction.previous(3);
+            case FORWARD -> moveBy(current.getDx(), current.getDy());
+            case BACKWARD -> moveBy(-current.getDx(), -current.getDy());
+            case ROTATE45 -> this.setDirection(current.next(1));
+            case ROTATE90 -> this.setDirection(current.next(2));
+            case ROTATE135 -> this.setDirection(current.next(3));
+            case ROTATE225 -> this.setDirection(current.previous(3));
+            case ROTATE270 -> this.setDirection(current.previous(2));
+            case ROTATE315 -> this.setDirection(current.previous(1));
         }
 
     }
 
 
     /**
-     * If can, move animal to given posiiton.
+     * If can, plan move of animal by given step.
      *
-     * @param position Position of animal to move.
+     * @param dx Step along x axis.
+     * @param dy Step along y axis.
      */
-    private void moveToVector(Vector2D position) {
-        if (this.map.canMoveTo(position)) {
-            if (this.map instanceof WrapAroundMap wrapAroundMap) {
-                position = wrapAroundMap.wrapPosition(position);
-            }
-            Vector2D oldPosition = this.getPosition();
-            this.setPosition(position);
-            positionChanged(oldPosition);
+    private void moveBy(int dx, int dy) {
+        int slot = this.slot;
+        long position = this.map.step(this.store.xs[slot], this.store.ys[slot], dx, dy);
+        if (position != IMap.BLOCKED) {
+            this.store.moving[slot] = true;
+            this.store.nextXs[slot] = Vector2D.unpackX(position);
+            this.store.nextYs[slot] = Vector2D.unpackY(position);
         }
     }
 
@@ -101,7 +239,7 @@ public class Animal extends AbstractMapElement {
      * @param energy Float value of energy.
      */
     public void addEnergy(float energy) {
-        this.energy += energy;
+        this.store.addEnergy(slot(), energy);
     }
 
     /**
@@ -110,7 +248,7 @@ public class Animal extends AbstractMapElement {
      * @param energy Float value of energy.
      */
     public void removeEnergy(float energy) {
-        this.energy -= energy;
+        this.store.addEnergy(slot(), -energy);
     }
 
     /**
@@ -119,7 +257,21 @@ public class Animal extends AbstractMapElement {
      * @return Float value of energy.
      */
     public float getEnergy() {
-        return energy;
+        return this.store.energies[slot()];
+    }
+
+    /**
+     * Return count of children of animal.
+     */
+    public int getChildrenCount() {
+        return this.store.children[slot()];
+    }
+
+    /**
+     * Return day when animal was born.
+     */
+    public int getBirthDay() {
+        return this.store.birthDays[slot()];
     }
 
     /**
@@ -132,43 +284,59 @@ public class Animal extends AbstractMapElement {
         Animal strong = this;
         Animal weak = partner;
 
+        float[] energies = this.store.energies;
+        int slot = this.slot();
+        int partnerSlot = partner.slot();
+
         // energy provided
-        if (this.energy > 0.5 * startEnergy && partner.energy > 0.5 * startEnergy) {
+        if (energies[slot] > 0.5 * startEnergy && energies[partnerSlot] > 0.5 * startEnergy) {
             // select dominant
-            if (!(this.energy > partner.energy)) {
+            if (!(energies[slot] > energies[partnerSlot])) {
                 strong = partner;
                 weak = this;
             }
 
-            // create gene
-            ArrayList<Integer> gene = new ArrayList<>();
+            float sum = energies[strong.slot] + energies[weak.slot];
+            int split = Math.round(GENOTYPE_SIZE * (energies[weak.slot] / sum));
 
-            float sum = strong.energy + weak.energy;
-            int split = Math.round(GENOTYPE_SIZE * (weak.energy / sum));
-
-            Random rand = new Random(); //randomize split
-
-            if (rand.nextBoolean()) {
-                gene.addAll(weak.genotype.subList(0, split));
-                gene.addAll(strong.genotype.subList(split, GENOTYPE_SIZE));
+            // create gene, weak parent gives left or right part of size split
+            Genome genome;
+            if (this.store.nextInt(slot, 2) == 0) { //randomize split
+                genome = Genome.crossover(weak.getGenome(), strong.getGenome(), split);
             } else {
-                gene.addAll(strong.genotype.subList(0, split + 1));
-                gene.addAll(strong.genotype.subList(split + 1, GENOTYPE_SIZE));
+                genome = Genome.crossover(strong.getGenome(), weak.getGenome(), GENOTYPE_SIZE - split);
             }
 
-            // remove energy (will not die)
-            strong.energy -= 0.5 * startEnergy;
-            weak.energy -= 0.5 * startEnergy;
-
-            Animal newborn = new Animal(this.map, this.getPosition(), gene, startEnergy);
-            this.selectedAnimalBreed(newborn);
-            partner.selectedAnimalBreed(newborn);
-            return newborn;
+            return giveBirth(partner, genome);
         } else {
             return null;
         }
     }
 
+    /**
+     * Take energy from this animal and partner and create child with given genome at position of this animal.
+     * Called by {@link #breed(Animal)} and to replay recorded births, energy of parents is not checked.
+     *
+     * @param partner Second parent.
+     * @param genome  Genome of child.
+     * @return Newborn animal, not placed at map yet.
+     */
+    public Animal giveBirth(Animal partner, Genome genome) {
+        int slot = this.slot();
+        int partnerSlot = partner.slot();
+
+        // remove energy (will not die)
+        this.store.addEnergy(slot, -0.5f * startEnergy);
+        this.store.addEnergy(partnerSlot, -0.5f * startEnergy);
+        this.store.addChild(slot);
+        this.store.addChild(partnerSlot);
+
+        Animal newborn = new Animal(this.map, this.getPosition(), genome, startEnergy);
+        this.selectedAnimalBreed(newborn);
+        partner.selectedAnimalBreed(newborn);
+        return newborn;
+    }
+
 
     /**
      * Return direction associated with a given number.
@@ -190,44 +358,74 @@ public class Animal extends AbstractMapElement {
         };
     }
 
+    /**
+     * Return genome of animal.
+     *
+     * @return Packed genotype.
+     */
+    public Genome getGenome() {
+        return this.store.genomes[slot()];
+    }
+
     /**
      * Return genotype of animal
      *
-     * @return ArrayList of a genotype consisting of genes.
+     * @return Unmodifiable list of a genotype consisting of genes.
      */
-    public ArrayList<Integer> getGenotype() {
-        return genotype;
+    public List<Integer> getGenotype() {
+        return getGenome().asList();
     }
 
     public void addPositionChangedObserver(IPositionChangedObserver observer) {
-        this.positionChangedObserversobservers.add(observer);
+        if (this.positionChangedObserversobservers == null) {
+            this.positionChangedObserversobservers = new ArrayList<>(1);
+        }
+        if (!this.positionChangedObserversobservers.contains(observer)) {
+            this.positionChangedObserversobservers.add(observer);
+        }
     }
 
     public void removePositionChangedObserver(IPositionChangedObserver observer) {
-        this.positionChangedObserversobservers.remove(observer);
+        if (this.positionChangedObserversobservers != null) {
+            this.positionChangedObserversobservers.remove(observer);
+        }
     }
 
-    private void positionChanged(Vector2D oldPosition) {
-        for (var observer : positionChangedObserversobservers) {
-            observer.positionChanged(this, oldPosition);
+    private void positionChanged(int oldX, int oldY) {
+        if (this.positionChangedObserversobservers == null) {
+            return;
+        }
+        for (int i = 0; i < this.positionChangedObserversobservers.size(); i++) {
+            this.positionChangedObserversobservers.get(i).positionChanged(this, oldX, oldY);
         }
     }
 
     public void addSelectedAnimalActionsObserver(ISelectedAnimalActionsObserver observer) {
+        if (this.selectedAnimalActionsObservers == null) {
+            this.selectedAnimalActionsObservers = new HashSet<>();
+        }
         this.selectedAnimalActionsObservers.add(observer);
     }
 
     public void removeSelectedAnimalActionsObserver(ISelectedAnimalActionsObserver observer) {
-        this.selectedAnimalActionsObservers.remove(observer);
+        if (this.selectedAnimalActionsObservers != null) {
+            this.selectedAnimalActionsObservers.remove(observer);
+        }
     }
 
     public void selectedAnimalDeath() {
+        if (this.selectedAnimalActionsObservers == null) {
+            return;
+        }
         for (var observer : selectedAnimalActionsObservers) {
             observer.selectedAnimalDeath(this);
         }
     }
 
     public void selectedAnimalBreed(Animal newborn) {
+        if (this.selectedAnimalActionsObservers == null) {
+            return;
+        }
         for (var observer : selectedAnimalActionsObservers) {
             observer.selectedAnimalBreed(this, newborn);
         }
@@ -236,7 +434,7 @@ public class Animal extends AbstractMapElement {
     @Override
     public String toString() {
 //        return "■ ";
-        return switch (this.direction) {
+        return switch (this.getDirection()) {
             case N -> "N ";
             case NE -> "NE";
             case E -> "E ";
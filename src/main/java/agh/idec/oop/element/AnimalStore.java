@@ -0,0 +1,395 @@
+package agh.idec.oop.element;
+
+import agh.idec.oop.map.IMap;
+import agh.idec.oop.utils.CheckpointReader;
+import agh.idec.oop.utils.CheckpointWriter;
+import agh.idec.oop.utils.SplitRandom;
+
+import java.io.IOException;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Storage of animals living on a map.<br>
+ * Data of animals is kept in primitive arrays (columns) indexed by row (slot),
+ * {@link Animal} objects are only lightweight views of their rows.
+ * Rows are kept dense - when an animal is removed the last row takes its place.<br>
+ * Every animal has its own random stream split from store's generator,
+ * so results of animals' decisions do not depend on the order in which they are made.<br>
+ * Sums of energy and children of living animals are kept up to date on every change,
+ * so statistics do not need to scan the store.
+ */
+public class AnimalStore extends AbstractCollection<Animal> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int size = 0;
+    private int nextId = 0;
+    private int day = 0;
+
+    private final SplitRandom random;
+
+    private final GenotypeIndex genotypes = new GenotypeIndex();
+
+    private double totalEnergy = 0;
+    private long totalChildren = 0;
+
+    Animal[] animals = new Animal[INITIAL_CAPACITY];
+    int[] ids = new int[INITIAL_CAPACITY];
+    float[] energies = new float[INITIAL_CAPACITY];
+    int[] xs = new int[INITIAL_CAPACITY];
+    int[] ys = new int[INITIAL_CAPACITY];
+    byte[] directions = new byte[INITIAL_CAPACITY];
+    int[] birthDays = new int[INITIAL_CAPACITY];
+    int[] children = new int[INITIAL_CAPACITY];
+    Genome[] genomes = new Genome[INITIAL_CAPACITY];
+    long[] randoms = new long[INITIAL_CAPACITY];
+
+    // moves planned in movement phase
+    boolean[] moving = new boolean[INITIAL_CAPACITY];
+    int[] nextXs = new int[INITIAL_CAPACITY];
+    int[] nextYs = new int[INITIAL_CAPACITY];
+
+    public AnimalStore() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * @param seed Seed of generator used to split random streams of animals.
+     */
+    public AnimalStore(long seed) {
+        this.random = new SplitRandom(seed);
+    }
+
+    /**
+     * Add row of new animal.
+     *
+     * @return Slot of added row.
+     */
+    int add(Animal animal, int x, int y, Genome genome, float energy) {
+        if (this.size == this.animals.length) {
+            grow();
+        }
+        int slot = this.size;
+
+        this.animals[slot] = animal;
+        this.ids[slot] = this.nextId++;
+        this.energies[slot] = energy;
+        this.xs[slot] = x;
+        this.ys[slot] = y;
+        this.birthDays[slot] = this.day;
+        this.children[slot] = 0;
+        this.genomes[slot] = genome;
+        this.randoms[slot] = this.random.splitSeed();
+        this.directions[slot] = (byte) nextInt(slot, MapDirection.values().length);
+        this.moving[slot] = false;
+
+        this.totalEnergy += energy;
+        this.genotypes.add(animal, genome);
+        this.size++;
+        return slot;
+    }
+
+    /**
+     * Remove row of animal. The last row is moved to the freed slot.
+     *
+     * @param animal Animal to remove.
+     */
+    public void remove(Animal animal) {
+        int slot = animal.slot;
+        if (slot < 0 || this.animals[slot] != animal) {
+            throw new IllegalArgumentException("Animal is not stored.");
+        }
+
+        this.totalEnergy -= this.energies[slot];
+        this.totalChildren -= this.children[slot];
+        this.genotypes.remove(animal, this.genomes[slot]);
+
+        int last = --this.size;
+        if (slot != last) {
+            Animal moved = this.animals[last];
+            this.animals[slot] = moved;
+            this.ids[slot] = this.ids[last];
+            this.energies[slot] = this.energies[last];
+            this.xs[slot] = this.xs[last];
+            this.ys[slot] = this.ys[last];
+            this.directions[slot] = this.directions[last];
+            this.birthDays[slot] = this.birthDays[last];
+            this.children[slot] = this.children[last];
+            this.genomes[slot] = this.genomes[last];
+            this.randoms[slot] = this.randoms[last];
+            this.moving[slot] = this.moving[last];
+            this.nextXs[slot] = this.nextXs[last];
+            this.nextYs[slot] = this.nextYs[last];
+            moved.slot = slot;
+        }
+        this.animals[last] = null;
+        this.genomes[last] = null;
+        animal.slot = -1;
+    }
+
+    private void grow() {
+        grow(this.animals.length * 2);
+    }
+
+    private void grow(int capacity) {
+        this.animals = Arrays.copyOf(this.animals, capacity);
+        this.ids = Arrays.copyOf(this.ids, capacity);
+        this.energies = Arrays.copyOf(this.energies, capacity);
+        this.xs = Arrays.copyOf(this.xs, capacity);
+        this.ys = Arrays.copyOf(this.ys, capacity);
+        this.directions = Arrays.copyOf(this.directions, capacity);
+        this.birthDays = Arrays.copyOf(this.birthDays, capacity);
+        this.children = Arrays.copyOf(this.children, capacity);
+        this.genomes = Arrays.copyOf(this.genomes, capacity);
+        this.randoms = Arrays.copyOf(this.randoms, capacity);
+        this.moving = Arrays.copyOf(this.moving, capacity);
+        this.nextXs = Arrays.copyOf(this.nextXs, capacity);
+        this.nextYs = Arrays.copyOf(this.nextYs, capacity);
+    }
+
+    /**
+     * Write all rows, state of random generator and order of animals on their fields.
+     * Genomes are written as ranks of {@link GenotypeIndex}, so order of genomes in index is kept too.
+     *
+     * @param out Checkpoint.
+     */
+    public void writeTo(CheckpointWriter out) throws IOException {
+        out.putInt(this.size);
+        out.putInt(this.nextId);
+        out.putInt(this.day);
+        out.putLong(this.random.getState());
+        out.putDouble(this.totalEnergy);
+        out.putLong(this.totalChildren);
+
+        HashMap<Genome, Integer> ranks = new HashMap<>();
+        out.putInt(this.genotypes.size());
+        for (int rank = 0; rank < this.genotypes.size(); rank++) {
+            Genome genome = this.genotypes.get(rank);
+            ranks.put(genome, rank);
+            out.putLong(genome.getLow());
+            out.putLong(genome.getHigh());
+        }
+
+        int[] column = new int[this.size];
+        for (int slot = 0; slot < this.size; slot++) {
+            column[slot] = ranks.get(this.genomes[slot]);
+        }
+        out.putInts(column, this.size);
+        for (int slot = 0; slot < this.size; slot++) {
+            column[slot] = this.animals[slot].fieldSlot;
+        }
+        out.putInts(column, this.size);
+
+        out.putInts(this.ids, this.size);
+        out.putFloats(this.energies, this.size);
+        out.putInts(this.xs, this.size);
+        out.putInts(this.ys, this.size);
+        out.putBytes(this.directions, this.size);
+        out.putInts(this.birthDays, this.size);
+        out.putInts(this.children, this.size);
+        out.putLongs(this.randoms, this.size);
+    }
+
+    /**
+     * Read rows written by {@link #writeTo(CheckpointWriter)} into empty store
+     * and put animals on fields of map in their previous order.
+     *
+     * @param in          Checkpoint.
+     * @param map         Map of store.
+     * @param startEnergy Start energy of animals.
+     */
+    public void readFrom(CheckpointReader in, IMap map, float startEnergy) throws IOException {
+        if (this.size != 0 || map.getAnimalStore() != this) {
+            throw new IllegalStateException("Checkpoint can be read only into empty store of map.");
+        }
+        int size = in.getInt();
+        this.nextId = in.getInt();
+        this.day = in.getInt();
+        this.random.setState(in.getLong());
+        double totalEnergy = in.getDouble();
+        long totalChildren = in.getLong();
+
+        Genome[] ranks = new Genome[in.getInt()];
+        for (int rank = 0; rank < ranks.length; rank++) {
+            ranks[rank] = Genome.of(in.getLong(), in.getLong());
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < size) {
+            capacity *= 2;
+        }
+        grow(capacity);
+
+        int[] genomeRanks = new int[size];
+        int[] fieldSlots = new int[size];
+        in.getInts(genomeRanks, size);
+        in.getInts(fieldSlots, size);
+        in.getInts(this.ids, size);
+        in.getFloats(this.energies, size);
+        in.getInts(this.xs, size);
+        in.getInts(this.ys, size);
+        in.getBytes(this.directions, size);
+        in.getInts(this.birthDays, size);
+        in.getInts(this.children, size);
+        in.getLongs(this.randoms, size);
+
+        for (int slot = 0; slot < size; slot++) {
+            Animal animal = new Animal(map, slot, startEnergy);
+            this.animals[slot] = animal;
+            this.genomes[slot] = ranks[genomeRanks[slot]];
+            this.genotypes.add(animal, this.genomes[slot]);
+            map.fieldAt(this.xs[slot], this.ys[slot]).getAnimals().put(animal, fieldSlots[slot]);
+        }
+        this.genotypes.reorder(ranks);
+
+        this.size = size;
+        this.totalEnergy = totalEnergy;
+        this.totalChildren = totalChildren;
+    }
+
+    /**
+     * Return next pseudo random int from own random stream of animal.
+     *
+     * @param slot  Slot of animal.
+     * @param bound Positive upper bound (exclusive).
+     */
+    int nextInt(int slot, int bound) {
+        long state = SplitRandom.advance(this.randoms[slot]);
+        this.randoms[slot] = state;
+        return SplitRandom.bounded(SplitRandom.mix(state), bound);
+    }
+
+    /**
+     * Change energy of animal stored at given slot.
+     *
+     * @param slot   Slot of animal.
+     * @param energy Value added to energy, negative to drain.
+     */
+    void addEnergy(int slot, float energy) {
+        this.energies[slot] += energy;
+        this.totalEnergy += energy;
+    }
+
+    /**
+     * Count new child of animal stored at given slot.
+     */
+    void addChild(int slot) {
+        this.children[slot]++;
+        this.totalChildren++;
+    }
+
+    /**
+     * Remove given value of energy from all animals.
+     *
+     * @param energy Float value of energy.
+     */
+    public void drainEnergy(float energy) {
+        float[] energies = this.energies;
+        for (int slot = 0; slot < this.size; slot++) {
+            energies[slot] -= energy;
+        }
+        this.totalEnergy -= (double) energy * this.size;
+    }
+
+    /**
+     * Return animal stored at given slot.
+     *
+     * @param slot Slot from 0 to size - 1.
+     * @return Animal view of row.
+     */
+    public Animal get(int slot) {
+        return this.animals[slot];
+    }
+
+    /**
+     * Return energy of animal stored at given slot.
+     */
+    public float getEnergy(int slot) {
+        return this.energies[slot];
+    }
+
+    /**
+     * Return genome of animal stored at given slot.
+     */
+    public Genome getGenome(int slot) {
+        return this.genomes[slot];
+    }
+
+    /**
+     * Return count of children of animal stored at given slot.
+     */
+    public int getChildren(int slot) {
+        return this.children[slot];
+    }
+
+    /**
+     * Return frequency index of genomes of stored animals.
+     */
+    public GenotypeIndex getGenotypeIndex() {
+        return this.genotypes;
+    }
+
+    /**
+     * Return sum of energy of all animals.
+     */
+    public double getTotalEnergy() {
+        return this.totalEnergy;
+    }
+
+    /**
+     * Return sum of children counts of all animals.
+     */
+    public long getTotalChildren() {
+        return this.totalChildren;
+    }
+
+    /**
+     * Return day of birth of animal stored at given slot.
+     */
+    public int getBirthDay(int slot) {
+        return this.birthDays[slot];
+    }
+
+    /**
+     * Return current day, it is used as birth day of added animals.
+     */
+    public int getDay() {
+        return day;
+    }
+
+    /**
+     * Set current day, it is used as birth day of added animals.
+     */
+    public void setDay(int day) {
+        this.day = day;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<Animal> iterator() {
+        return new Iterator<>() {
+            private int slot = 0;
+
+            @Override
+            public boolean hasNext() {
+                return slot < size;
+            }
+
+            @Override
+            public Animal next() {
+                if (slot >= size) {
+                    throw new NoSuchElementException();
+                }
+                return animals[slot++];
+            }
+        };
+    }
+}
@@ -0,0 +1,192 @@
+package agh.idec.oop.element;
+
+import agh.idec.oop.utils.SplitRandom;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Immutable genotype of an animal.<br>
+ * {@link Animal#GENOTYPE_SIZE} genes of 3 bits are packed into two longs (16 genes per long),
+ * so genes are read and crossed over with bit operations only.
+ */
+public final class Genome {
+    private static final int GENES_PER_WORD = 16;
+    private static final int GENE_BITS = 3;
+    private static final long GENE_MASK = (1L << GENE_BITS) - 1;
+    private static final long WORD_MASK = (1L << (GENES_PER_WORD * GENE_BITS)) - 1;
+
+    /**
+     * Genes from 0 to 15, gene i at bits 3i..3i+2.
+     */
+    private final long low;
+
+    /**
+     * Genes from 16 to 31, gene i at bits 3(i-16)..3(i-16)+2.
+     */
+    private final long high;
+
+    private final int hash;
+
+    private Genome(long low, long high) {
+        this.low = low;
+        this.high = high;
+        this.hash = Long.hashCode(low * 31 + high);
+    }
+
+    /**
+     * Create genome from list of genes.
+     *
+     * @param genotype List of {@link Animal#GENOTYPE_SIZE} genes with values from 0 to 7.
+     * @return Genome.
+     */
+    public static Genome of(List<Integer> genotype) {
+        if (genotype.size() != Animal.GENOTYPE_SIZE) {
+            throw new IllegalArgumentException("Gene has no proper amount of genomes.");
+        }
+        long low = 0;
+        long high = 0;
+        for (int i = 0; i < Animal.GENOTYPE_SIZE; i++) {
+            int gene = genotype.get(i);
+            if (gene < 0 || gene >= Animal.GENE_TYPE) {
+                throw new IllegalArgumentException("Values of genotype are not valid.");
+            }
+            if (i < GENES_PER_WORD) {
+                low |= (long) gene << (i * GENE_BITS);
+            } else {
+                high |= (long) gene << ((i - GENES_PER_WORD) * GENE_BITS);
+            }
+        }
+        return new Genome(low, high);
+    }
+
+    /**
+     * Create genome from packed representation.
+     *
+     * @param low  Packed genes from 0 to 15.
+     * @param high Packed genes from 16 to 31.
+     * @return Genome.
+     */
+    public static Genome of(long low, long high) {
+        return new Genome(low & WORD_MASK, high & WORD_MASK);
+    }
+
+    /**
+     * Create genome with random genes.
+     *
+     * @param random Random generator.
+     * @return Genome.
+     */
+    public static Genome random(SplitRandom random) {
+        long low = 0;
+        long high = 0;
+        for (int i = 0; i < GENES_PER_WORD; i++) {
+            low |= (long) random.nextInt(Animal.GENE_TYPE) << (i * GENE_BITS);
+        }
+        for (int i = 0; i < GENES_PER_WORD; i++) {
+            high |= (long) random.nextInt(Animal.GENE_TYPE) << (i * GENE_BITS);
+        }
+        return new Genome(low, high);
+    }
+
+    /**
+     * Create genome taking genes before split from left genome and the rest from right genome.
+     *
+     * @param left  Genome of the left part.
+     * @param right Genome of the right part.
+     * @param split Count of genes taken from left genome, from 0 to {@link Animal#GENOTYPE_SIZE}.
+     * @return New genome.
+     */
+    public static Genome crossover(Genome left, Genome right, int split) {
+        long lowMask = maskOf(split);
+        long highMask = maskOf(split - GENES_PER_WORD);
+
+        long low = (left.low & lowMask) | (right.low & ~lowMask & WORD_MASK);
+        long high = (left.high & highMask) | (right.high & ~highMask & WORD_MASK);
+        return new Genome(low, high);
+    }
+
+    /**
+     * Return mask of first genes of a word.
+     *
+     * @param genes Count of genes, values out of range 0..16 are clamped.
+     */
+    private static long maskOf(int genes) {
+        if (genes <= 0) {
+            return 0;
+        }
+        if (genes >= GENES_PER_WORD) {
+            return WORD_MASK;
+        }
+        return (1L << (genes * GENE_BITS)) - 1;
+    }
+
+    /**
+     * Return gene at given index.
+     *
+     * @param index Index from 0 to {@link Animal#GENOTYPE_SIZE} - 1.
+     * @return Gene value from 0 to 7.
+     */
+    public int gene(int index) {
+        long word = index < GENES_PER_WORD ? this.low : this.high;
+        return (int) ((word >>> ((index & (GENES_PER_WORD - 1)) * GENE_BITS)) & GENE_MASK);
+    }
+
+    /**
+     * Return packed genes from 0 to 15.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Return packed genes from 16 to 31.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * Return genome as unmodifiable list of genes.
+     */
+    public List<Integer> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                if (index < 0 || index >= Animal.GENOTYPE_SIZE) {
+                    throw new IndexOutOfBoundsException(index);
+                }
+                return gene(index);
+            }
+
+            @Override
+            public int size() {
+                return Animal.GENOTYPE_SIZE;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other)
+            return true;
+        if (!(other instanceof Genome that))
+            return false;
+
+        return this.hash == that.hash && this.low == that.low && this.high == that.high;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(Animal.GENOTYPE_SIZE);
+        for (int i = 0; i < Animal.GENOTYPE_SIZE; i++) {
+            builder.append(gene(i));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,242 @@
+package agh.idec.oop.element;
+
+import agh.idec.oop.Vector2D;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Frequency index of genomes of living animals, updated by {@link AnimalStore} on every birth and death.<br>
+ * Genomes are kept in an array sorted by count of animals (descending). Genomes with the same count form
+ * a block, and start and size of the block are remembered for every count, so a count changes by one
+ * with a single swap. Thanks to that the most frequent genomes are read in O(K)
+ * and every genome knows its animals.
+ */
+public class GenotypeIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Genome with its living animals.
+     */
+    private static final class Entry {
+        private final Genome genome;
+        private int rank;
+        private Animal[] animals = new Animal[4];
+        private int count = 0;
+
+        private Entry(Genome genome) {
+            this.genome = genome;
+        }
+    }
+
+    private final HashMap<Genome, Entry> entries = new HashMap<>();
+
+    private Entry[] order = new Entry[INITIAL_CAPACITY];
+    private int size = 0;
+
+    // first rank and size of block of genomes with given count
+    private int[] blockStart = new int[INITIAL_CAPACITY];
+    private int[] blockSize = new int[INITIAL_CAPACITY];
+
+    /**
+     * Register born animal.
+     *
+     * @param animal Animal with genome already stored.
+     * @param genome Genome of animal.
+     */
+    void add(Animal animal, Genome genome) {
+        Entry entry = this.entries.get(genome);
+        if (entry == null) {
+            entry = new Entry(genome);
+            this.entries.put(genome, entry);
+            if (this.size == this.order.length) {
+                this.order = Arrays.copyOf(this.order, this.size * 2);
+            }
+            // new genome forms block of count 0 at the end
+            entry.rank = this.size;
+            this.order[this.size++] = entry;
+            this.blockStart[0] = entry.rank;
+            this.blockSize[0] = 1;
+        }
+
+        if (entry.count == entry.animals.length) {
+            entry.animals = Arrays.copyOf(entry.animals, entry.count * 2);
+        }
+        animal.genomeSlot = entry.count;
+        entry.animals[entry.count] = animal;
+        increment(entry);
+    }
+
+    /**
+     * Unregister dead animal.
+     *
+     * @param animal Animal to remove.
+     * @param genome Genome of animal.
+     */
+    void remove(Animal animal, Genome genome) {
+        Entry entry = this.entries.get(genome);
+        int slot = animal.genomeSlot;
+        if (entry == null || slot < 0 || slot >= entry.count || entry.animals[slot] != animal) {
+            throw new IllegalArgumentException("Animal is not indexed.");
+        }
+
+        Animal last = entry.animals[entry.count - 1];
+        entry.animals[slot] = last;
+        last.genomeSlot = slot;
+        entry.animals[entry.count - 1] = null;
+        animal.genomeSlot = -1;
+        decrement(entry);
+
+        if (entry.count == 0) {
+            // genome with count 0 is the last one
+            this.order[--this.size] = null;
+            this.blockSize[0] = 0;
+            this.entries.remove(genome);
+        }
+    }
+
+    /**
+     * Restore order of genomes with equal counts. Index has to contain exactly given genomes.
+     *
+     * @param ranks Genomes ordered by rank.
+     */
+    void reorder(Genome[] ranks) {
+        if (ranks.length != this.size) {
+            throw new IllegalArgumentException("Genomes do not match index.");
+        }
+        Arrays.fill(this.blockSize, 0);
+        for (int rank = 0; rank < ranks.length; rank++) {
+            Entry entry = this.entries.get(ranks[rank]);
+            if (entry == null || (rank > 0 && entry.count > this.order[rank - 1].count)) {
+                throw new IllegalArgumentException("Genomes do not match index.");
+            }
+            entry.rank = rank;
+            this.order[rank] = entry;
+            if (this.blockSize[entry.count]++ == 0) {
+                this.blockStart[entry.count] = rank;
+            }
+        }
+    }
+
+    /**
+     * Move genome to the front of its block and attach it to the end of block of higher count.
+     */
+    private void increment(Entry entry) {
+        int count = entry.count;
+        if (count + 1 == this.blockStart.length) {
+            this.blockStart = Arrays.copyOf(this.blockStart, this.blockStart.length * 2);
+            this.blockSize = Arrays.copyOf(this.blockSize, this.blockSize.length * 2);
+        }
+
+        int first = this.blockStart[count];
+        swap(entry.rank, first);
+        this.blockStart[count] = first + 1;
+        this.blockSize[count]--;
+
+        if (this.blockSize[count + 1] == 0) {
+            this.blockStart[count + 1] = first;
+        }
+        this.blockSize[count + 1]++;
+        entry.count++;
+    }
+
+    /**
+     * Move genome to the back of its block and attach it to the front of block of lower count.
+     */
+    private void decrement(Entry entry) {
+        int count = entry.count;
+
+        int last = this.blockStart[count] + this.blockSize[count] - 1;
+        swap(entry.rank, last);
+        this.blockSize[count]--;
+
+        this.blockStart[count - 1] = last;
+        this.blockSize[count - 1]++;
+        entry.count--;
+    }
+
+    private void swap(int i, int j) {
+        Entry a = this.order[i];
+        Entry b = this.order[j];
+        this.order[i] = b;
+        this.order[j] = a;
+        a.rank = j;
+        b.rank = i;
+    }
+
+    /**
+     * Return count of distinct genomes.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Return genome at given rank, genomes are ordered by count of animals, the most frequent first.
+     *
+     * @param rank Rank from 0 to size - 1.
+     * @return Genome.
+     */
+    public Genome get(int rank) {
+        return this.order[rank].genome;
+    }
+
+    /**
+     * Return count of animals with genome at given rank.
+     */
+    public int getCount(int rank) {
+        return this.order[rank].count;
+    }
+
+    /**
+     * Return count of living animals with given genome.
+     */
+    public int getCount(Genome genome) {
+        Entry entry = this.entries.get(genome);
+        return entry != null ? entry.count : 0;
+    }
+
+    /**
+     * Return the most frequent genome or null if there are no animals.
+     */
+    public Genome getDominant() {
+        return this.size > 0 ? this.order[0].genome : null;
+    }
+
+    /**
+     * Return the most frequent genomes.
+     *
+     * @param k Maximal count of returned genomes.
+     * @return List of at most k genomes, the most frequent first.
+     */
+    public List<Genome> getTop(int k) {
+        int count = Math.min(k, this.size);
+        List<Genome> top = new ArrayList<>(count);
+        for (int rank = 0; rank < count; rank++) {
+            top.add(this.order[rank].genome);
+        }
+        return top;
+    }
+
+    /**
+     * Return positions of living animals with given genome.
+     *
+     * @param genome Genome of animals.
+     * @return Set of positions, empty if there are no such animals.
+     */
+    public Set<Vector2D> getPositions(Genome genome) {
+        Entry entry = genome != null ? this.entries.get(genome) : null;
+        if (entry == null) {
+            return Set.of();
+        }
+        HashSet<Vector2D> positions = new HashSet<>();
+        for (int i = 0; i < entry.count; i++) {
+            positions.add(entry.animals[i].getPosition());
+        }
+        return positions;
+    }
+}
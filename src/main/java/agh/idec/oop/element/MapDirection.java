@@ -3,14 +3,26 @@ package agh.idec.oop.element;
 import agh.idec.oop.Vector2D;
 
 public enum MapDirection {
-    N,
-    NE,
-    E,
-    SE,
-    S,
-    SW,
-    W,
-    NW;
+    N(0, 1),
+    NE(1, 1),
+    E(1, 0),
+    SE(1, -1),
+    S(0, -1),
+    SW(-1, -1),
+    W(-1, 0),
+    NW(-1, 1);
+
+    private static final MapDirection[] DIRECTIONS = values();
+
+    private final int dx;
+    private final int dy;
+    private final Vector2D unitVector;
+
+    MapDirection(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+        this.unitVector = new Vector2D(dx, dy);
+    }
 
     @Override
     public String toString() {
@@ -33,11 +45,7 @@ public enum MapDirection {
      * @return Direction.
      */
     public MapDirection next(int num) {
-        MapDirection direction = this;
-        for (int i = 0; i < num; i++) {
-            direction = direction.getMapDirection(NE, E, SE, S, SW, W, NW, N);
-        }
-        return direction;
+        return DIRECTIONS[Math.floorMod(this.ordinal() + num, DIRECTIONS.length)];
     }
 
     /**
@@ -47,39 +55,27 @@ public enum MapDirection {
      * @return Direction.
      */
     public MapDirection previous(int num) {
-        MapDirection direction = this;
-        for (int i = 0; i < num; i++) {
-            direction = direction.getMapDirection(NW, N, NE, E, SE, S, SW, W);
-        }
-        return getMapDirection(NW, N, NE, E, SE, S, SW, W);
+        return next(-num);
     }
 
-    private MapDirection getMapDirection(MapDirection nw, MapDirection n, MapDirection ne, MapDirection e, MapDirection se, MapDirection s, MapDirection sw, MapDirection w) {
-        return switch (this) {
-            case N -> nw;
-            case NE -> n;
-            case E -> ne;
-            case SE -> e;
-            case S -> se;
-            case SW -> s;
-            case W -> sw;
-            case NW -> w;
-        };
+    /**
+     * Return x coordinate of unit vector of direction.
+     */
+    public int getDx() {
+        return this.dx;
     }
 
     /**
-     * Return unit Vector2D of given direction.
+     * Return y coordinate of unit vector of direction.
+     */
+    public int getDy() {
+        return this.dy;
+    }
+
+    /**
+     * Return unit Vector2D of given direction, the same instance on every call.
      */
     public Vector2D toUnitVector() {
-        return switch (this) {
-            case N -> new Vector2D(0, 1);
-            case NE -> new Vector2D(1, 1);
-            case E -> new Vector2D(1, 0);
-            case SE -> new Vector2D(1, -1);
-            case S -> new Vector2D(0, -1);
-            case SW -> new Vector2D(-1, -1);
-            case W -> new Vector2D(-1, 0);
-            case NW -> new Vector2D(-1, 1);
-        };
+        return this.unitVector;
     }
 }
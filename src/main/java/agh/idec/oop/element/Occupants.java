@@ -0,0 +1,192 @@
+package agh.idec.oop.element;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Animals occupying one field.<br>
+ * Animals are kept in a small array, adding and removing takes constant time.
+ * Energy of animals changes while they stay on field, so the strongest animals
+ * are selected on demand by moving them to the front of array.
+ */
+public class Occupants implements Iterable<Animal> {
+    private static final Animal[] EMPTY = new Animal[0];
+
+    private Animal[] animals = EMPTY;
+    private int size = 0;
+
+    /**
+     * Add animal to field.
+     *
+     * @param animal Animal to add.
+     */
+    public void add(Animal animal) {
+        if (this.size == this.animals.length) {
+            this.animals = Arrays.copyOf(this.animals, Math.max(4, this.size * 2));
+        }
+        this.animals[this.size] = animal;
+        animal.fieldSlot = this.size;
+        this.size++;
+    }
+
+    /**
+     * Remove animal from field. Last animal takes place of removed one.
+     * Nothing happens if animal is not on field.
+     *
+     * @param animal Animal to remove.
+     */
+    public void remove(Animal animal) {
+        int slot = animal.fieldSlot;
+        if (slot < 0 || slot >= this.size || this.animals[slot] != animal) {
+            return;
+        }
+        this.size--;
+        Animal last = this.animals[this.size];
+        this.animals[slot] = last;
+        last.fieldSlot = slot;
+        this.animals[this.size] = null;
+        animal.fieldSlot = -1;
+    }
+
+    /**
+     * Put animal at given index, used to restore order of animals from checkpoint.
+     * After all animals are put, indexes from 0 to size - 1 have to be taken.
+     *
+     * @param animal Animal to put.
+     * @param index  Index of animal.
+     */
+    void put(Animal animal, int index) {
+        if (index >= this.animals.length) {
+            this.animals = Arrays.copyOf(this.animals, Math.max(4, Math.max(index + 1, this.animals.length * 2)));
+        }
+        this.animals[index] = animal;
+        animal.fieldSlot = index;
+        this.size = Math.max(this.size, index + 1);
+    }
+
+    /**
+     * Return count of animals.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Check if there are no animals.
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Return animal at given index. Order changes after selections and removals.
+     *
+     * @param index Index from 0 to size - 1.
+     * @return Animal.
+     */
+    public Animal get(int index) {
+        if (index < 0 || index >= this.size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return this.animals[index];
+    }
+
+    /**
+     * Return animal with the highest energy without changing order.
+     *
+     * @return The strongest animal or null if there are no animals.
+     */
+    public Animal peek() {
+        Animal strongest = null;
+        float energy = 0;
+        for (int i = 0; i < this.size; i++) {
+            Animal animal = this.animals[i];
+            float animalEnergy = animal.getEnergy();
+            if (strongest == null || animalEnergy > energy) {
+                strongest = animal;
+                energy = animalEnergy;
+            }
+        }
+        return strongest;
+    }
+
+    /**
+     * Move all animals with the highest energy to the front.
+     *
+     * @return Count of animals with the highest energy (0 if there are no animals).
+     */
+    public int selectStrongest() {
+        if (this.size == 0) {
+            return 0;
+        }
+        float max = this.animals[0].getEnergy();
+        int count = 1;
+        for (int i = 1; i < this.size; i++) {
+            float energy = this.animals[i].getEnergy();
+            if (energy > max) {
+                max = energy;
+                swap(0, i);
+                count = 1;
+            } else if (energy == max) {
+                swap(count, i);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Move k animals with the highest energies to the front, ordered by energy descending.
+     *
+     * @param k Count of selected animals.
+     * @return Count of selected animals (less than k if there are not enough animals).
+     */
+    public int selectTop(int k) {
+        int count = Math.min(k, this.size);
+        for (int i = 0; i < count; i++) {
+            int best = i;
+            float max = this.animals[i].getEnergy();
+            for (int j = i + 1; j < this.size; j++) {
+                float energy = this.animals[j].getEnergy();
+                if (energy > max) {
+                    max = energy;
+                    best = j;
+                }
+            }
+            swap(i, best);
+        }
+        return count;
+    }
+
+    private void swap(int i, int j) {
+        if (i == j) {
+            return;
+        }
+        Animal animal = this.animals[i];
+        this.animals[i] = this.animals[j];
+        this.animals[j] = animal;
+        this.animals[i].fieldSlot = i;
+        animal.fieldSlot = j;
+    }
+
+    @Override
+    public Iterator<Animal> iterator() {
+        return new Iterator<>() {
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public Animal next() {
+                if (index >= size) {
+                    throw new NoSuchElementException();
+                }
+                return animals[index++];
+            }
+        };
+    }
+}
@@ -2,10 +2,9 @@ package agh.idec.oop.field;
 
 import agh.idec.oop.Vector2D;
 import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.Occupants;
 import agh.idec.oop.element.Plant;
 
-import java.util.PriorityQueue;
-
 public class Field implements IMapField {
     private final FieldType type;
     private final Vector2D position;
@@ -13,10 +12,15 @@ public class Field implements IMapField {
 
     private Plant plant = null;
 
+    /**
+     * Index of field in {@link FreeFields}, -1 if field is not free.
+     */
+    int freeSlot = -1;
+
     /**
      * Store animals on field.
      */
-    private final PriorityQueue<Animal> animals = new PriorityQueue<>((o1, o2) -> Float.compare(o2.getEnergy(), o1.getEnergy()));
+    private final Occupants animals = new Occupants();
 
     /**
      * @param type Type of field.
@@ -55,7 +59,7 @@ public class Field implements IMapField {
     }
 
     @Override
-    public PriorityQueue<Animal> getAnimals() {
+    public Occupants getAnimals() {
         return this.animals;
     }
 
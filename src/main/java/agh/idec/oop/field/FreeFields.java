@@ -0,0 +1,113 @@
+package agh.idec.oop.field;
+
+import agh.idec.oop.utils.SplitRandom;
+
+import java.util.Arrays;
+
+/**
+ * Set of free fields (fields without animals and plants).
+ * Supports adding, removing and uniform random sampling in constant time.
+ */
+public class FreeFields {
+    private Field[] fields;
+    private int size = 0;
+
+    /**
+     * @param capacity Expected maximal count of free fields.
+     */
+    public FreeFields(int capacity) {
+        this.fields = new Field[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Add or remove field depending on whether it is empty.
+     *
+     * @param field Field which content has changed.
+     */
+    public void update(Field field) {
+        if (field.isEmpty()) {
+            add(field);
+        } else {
+            remove(field);
+        }
+    }
+
+    /**
+     * Add field to set. Nothing happens if field is already in set.
+     *
+     * @param field Field to add.
+     */
+    public void add(Field field) {
+        if (field.freeSlot >= 0) {
+            return;
+        }
+        if (this.size == this.fields.length) {
+            this.fields = Arrays.copyOf(this.fields, this.size * 2);
+        }
+        this.fields[this.size] = field;
+        field.freeSlot = this.size;
+        this.size++;
+    }
+
+    /**
+     * Remove field from set. Last field of set takes place of removed one.
+     * Nothing happens if field is not in set.
+     *
+     * @param field Field to remove.
+     */
+    public void remove(Field field) {
+        int slot = field.freeSlot;
+        if (slot < 0) {
+            return;
+        }
+        this.size--;
+        Field last = this.fields[this.size];
+        this.fields[slot] = last;
+        last.freeSlot = slot;
+        this.fields[this.size] = null;
+        field.freeSlot = -1;
+    }
+
+    /**
+     * Remove all fields from set.
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.fields[i].freeSlot = -1;
+            this.fields[i] = null;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * Return count of free fields.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Return free field at given index of set.
+     *
+     * @param index Index from 0 to size - 1.
+     * @return Free field.
+     */
+    public Field get(int index) {
+        return this.fields[index];
+    }
+
+    /**
+     * Return random free field. Field is not removed, it leaves the set
+     * as soon as something is placed on it, so placing an element on every
+     * returned field samples fields without replacement.
+     *
+     * @param random Random generator.
+     * @return Free field or null if there are no free fields.
+     */
+    public Field random(SplitRandom random) {
+        if (this.size == 0) {
+            return null;
+        }
+        return this.fields[random.nextInt(this.size)];
+    }
+}
@@ -1,10 +1,9 @@
 package agh.idec.oop.field;
 
 import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.Occupants;
 import agh.idec.oop.element.Plant;
 
-import java.util.PriorityQueue;
-
 public interface IMapField {
     /**
      * Return type of field.
@@ -26,11 +25,11 @@ public interface IMapField {
 
 
     /**
-     * Return list of elements at field.
+     * Return animals at field.
      *
-     * @return List of map elements.
+     * @return Occupants of field.
      */
-    PriorityQueue<Animal> getAnimals();
+    Occupants getAnimals();
 
 
     /**
@@ -1,14 +1,18 @@
 package agh.idec.oop.gui;
 
 import agh.idec.oop.World;
+import agh.idec.oop.WorldSnapshot;
 import agh.idec.oop.element.Animal;
-import agh.idec.oop.field.Field;
+import agh.idec.oop.element.Genome;
 import agh.idec.oop.observables.IMagicDayObserver;
 import agh.idec.oop.observables.INextSimulatedDayObserver;
 import agh.idec.oop.observables.ISelectedAnimalActionsObserver;
-import agh.idec.oop.utils.CSVWriter;
+import agh.idec.oop.utils.EventJournalReplayer;
 import agh.idec.oop.utils.MapCanvasualizer;
+import agh.idec.oop.utils.SeriesHistory;
+import agh.idec.oop.utils.StatsSink;
 import agh.idec.oop.utils.WorldInformationLogger;
+import javafx.animation.AnimationTimer;
 import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.geometry.Insets;
@@ -18,6 +22,7 @@ import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
@@ -27,14 +32,28 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 public class App extends Application implements INextSimulatedDayObserver, IMagicDayObserver {
 
     private static class WorldWrapper implements ISelectedAnimalActionsObserver {
+        private static final List<String> STATS_HEADER = Arrays.asList("day", "animals_count", "plants_count", "average_energy", "average_life_length", "average_children_count");
+
+        /**
+         * Count of the last days shown at chart, unless the whole run is shown.
+         */
+        private static final int CHART_DAYS = 500;
+
+        /**
+         * Maximal count of points of each series drawn at chart.
+         */
+        private static final int CHART_POINTS = 500;
 
         final private World world;
         final private String world_name;
@@ -47,19 +66,31 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         final private XYChart.Series<Number, Number> averageLifeLength = new XYChart.Series<>();
         final private XYChart.Series<Number, Number> averageChildren = new XYChart.Series<>();
 
-        final private List<Number> animalsCountData = new ArrayList<>();
-        final private List<Number> plantsCountData = new ArrayList<>();
-        final private List<Number> averageEnergyData = new ArrayList<>();
-        final private List<Number> averageLifeLengthData = new ArrayList<>();
-        final private List<Number> averageChildrenData = new ArrayList<>();
+        // statistics of all days are streamed to temporary file and copied on save
+        private volatile StatsSink statsSink = null;
+        private int statsDays = 0;
+
+        // statistics of days simulated since previous frame (day and values of series)
+        private final Queue<Number[]> pendingStats = new ConcurrentLinkedQueue<>();
+        private int renderedDay = -1;
+
+        // statistics of all days shown at chart, decimated to visible range
+        private final SeriesHistory history = new SeriesHistory(5);
+        private final int[] chartPoints = new int[CHART_POINTS];
+        private boolean wholeRun = false;
+        private boolean chartChanged = false;
+
+        private boolean recording = false;
 
         private Label dominantLabel;
         private NumberAxis xAxis;
 
+        // tracked animal is changed by simulation thread
         private Animal selectedAnimal = null;
-        private int childrenCount = 0;
+        private volatile int childrenCount = 0;
+        private volatile int descendantsCount = 0;
         private Set<Animal> selectedDescendants = new HashSet<>();
-        private boolean isDead = false;
+        private volatile boolean isDead = false;
 
         private Label genotypeLabel;
         private Label childrenLabel;
@@ -76,6 +107,38 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
             this.averageEnergy.setName("Average energy");
             this.averageLifeLength.setName("Average life length");
             this.averageChildren.setName("Average children count");
+
+            try {
+                Path spool = Files.createTempFile("evolution-stats", ".csv");
+                spool.toFile().deleteOnExit();
+                this.statsSink = new StatsSink(spool, STATS_HEADER);
+            } catch (IOException e) {
+                Alert alert = new Alert(Alert.AlertType.ERROR, "Statistics will not be saved: " + e, ButtonType.OK);
+                alert.show();
+            }
+        }
+
+        /**
+         * Close file of statistics, it can not be saved later. Recording of events is stopped.<br>
+         * Has to be called between days, see {@link World#inspect}.
+         */
+        public void close() {
+            if (this.recording) {
+                try {
+                    this.world.stopJournal();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                this.recording = false;
+            }
+            if (this.statsSink != null) {
+                try {
+                    this.statsSink.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                this.statsSink = null;
+            }
         }
 
         public void setCanvasualizer(MapCanvasualizer canvasualizer) {
@@ -90,6 +153,16 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
             this.xAxis = xAxis;
         }
 
+        /**
+         * Show statistics of the whole run or of the last days at chart.
+         *
+         * @param wholeRun True to show the whole run.
+         */
+        public void setWholeRun(boolean wholeRun) {
+            this.wholeRun = wholeRun;
+            this.chartChanged = true;
+        }
+
         public void setDominantLabel(Label dominantLabel) {
             this.dominantLabel = dominantLabel;
         }
@@ -133,66 +206,148 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
          * Save data of world to csv file.
          */
         public void saveData(Stage stage) {
-            List<String> header = Arrays.asList("day", "animals_count", "plants_count", "average_energy", "average_life_length", "average_children_count");
-            List<List<Number>> dataList = Arrays.asList(this.animalsCountData, this.plantsCountData, this.averageEnergyData, this.averageLifeLengthData, this.averageChildrenData);
+            StatsSink sink = this.statsSink;
+            if (sink == null) {
+                return;
+            }
 
             FileChooser fileChooser = new FileChooser();
             fileChooser.setTitle("Save stats");
             fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV files", "*.csv"));
+            fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Gzipped CSV files", "*.csv.gz"));
 
             File file = fileChooser.showSaveDialog(stage);
-            try {
-                CSVWriter csvWriter = new CSVWriter(file);
-                csvWriter.writeSeries(header, dataList);
-            } catch (IOException e) {
-                Alert alert = new Alert(Alert.AlertType.ERROR, e.toString(), ButtonType.OK);
-                alert.show();
+            if (file == null) {
+                return;
             }
+
+            // file is copied in background, FX thread only shows result
+            sink.exportTo(file.toPath()).whenComplete((ignored, e) -> {
+                if (e != null) {
+                    Platform.runLater(() -> {
+                        Alert alert = new Alert(Alert.AlertType.ERROR, e.toString(), ButtonType.OK);
+                        alert.show();
+                    });
+                }
+            });
         }
 
         /**
-         * Add current day data to chart.
+         * Start recording events of world to journal file chosen by user or stop recording.
+         *
+         * @param button Button which text shows state of recording.
          */
-        private void addDataToSeries() {
-            this.animalsCount.getData().add(new XYChart.Data<>(this.world.getDay(), this.logger.getAnimalsCount()));
-            this.animalsCountData.add(this.logger.getAnimalsCount());
-
-            this.plantsCount.getData().add(new XYChart.Data<>(this.world.getDay(), this.logger.getPlantsCount()));
-            this.plantsCountData.add(this.logger.getPlantsCount());
-
-            this.averageEnergy.getData().add(new XYChart.Data<>(this.world.getDay(), this.logger.getAverageEnergy()));
-            this.averageEnergyData.add(this.logger.getAverageEnergy());
-
-            this.averageLifeLength.getData().add(new XYChart.Data<>(this.world.getDay(), this.logger.getAverageAnimalsLifeLength()));
-            this.averageLifeLengthData.add(this.logger.getAverageAnimalsLifeLength());
+        public void toggleJournal(Stage stage, Button button) {
+            try {
+                if (this.recording) {
+                    this.world.stopJournal();
+                    this.recording = false;
+                    button.setText("Record events");
+                    return;
+                }
 
-            this.averageChildren.getData().add(new XYChart.Data<>(this.world.getDay(), this.logger.getAverageChildrenCount()));
-            this.averageChildrenData.add(this.logger.getAverageChildrenCount());
+                FileChooser fileChooser = new FileChooser();
+                fileChooser.setTitle("Record events");
+                fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Event journals", "*.journal"));
 
+                File file = fileChooser.showSaveDialog(stage);
+                if (file == null) {
+                    return;
+                }
+                this.world.startJournal(file.toPath());
+                this.recording = true;
+                button.setText("Stop recording");
+            } catch (IOException e) {
+                new Alert(Alert.AlertType.ERROR, e.toString(), ButtonType.OK).show();
+            }
+        }
 
-            xAxis.setLowerBound(Math.max(0, this.world.getDay() - 500));
-            xAxis.setUpperBound(this.world.getDay());
+        /**
+         * Remember statistics of simulated day, called by simulation thread at the end of every day.
+         */
+        public void recordDay() {
+            int day = this.world.getDay();
+            this.pendingStats.add(new Number[]{day, this.logger.getAnimalsCount(), this.logger.getPlantsCount(),
+                    this.logger.getAverageEnergy(), this.logger.getAverageAnimalsLifeLength(),
+                    this.logger.getAverageChildrenCount()});
+
+            StatsSink sink = this.statsSink;
+            if (sink != null) {
+                try {
+                    sink.append(this.statsDays++, this.logger.getAnimalsCount(), this.logger.getPlantsCount(),
+                            this.logger.getAverageEnergy(), this.logger.getAverageAnimalsLifeLength(),
+                            this.logger.getAverageChildrenCount());
+                } catch (UncheckedIOException e) {
+                    // simulation goes on without saving statistics
+                    this.statsSink = null;
+                    Platform.runLater(() -> {
+                        Alert alert = new Alert(Alert.AlertType.ERROR, "Statistics will not be saved: " + e.getCause(), ButtonType.OK);
+                        alert.show();
+                    });
+                }
+            }
+        }
 
-            for (var series : this.getSeries()) {
-                if (series.getData().size() > 500)
-                    series.getData().remove(0);
+        /**
+         * Add data of days simulated since previous frame to history and show decimated visible range at chart.
+         * Each series is changed once, with at most {@link #CHART_POINTS} points whatever the length of run is.
+         */
+        private void addDataToSeries() {
+            float[] values = new float[this.history.getSeriesCount()];
+            for (Number[] stats = this.pendingStats.poll(); stats != null; stats = this.pendingStats.poll()) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = stats[i + 1].floatValue();
+                }
+                this.history.add(stats[0].intValue(), values);
+                this.chartChanged = true;
+            }
+            if (!this.chartChanged || this.history.size() == 0) {
+                return;
             }
+            this.chartChanged = false;
+
+            int to = this.history.size();
+            int from = this.wholeRun ? 0 : Math.max(0, to - CHART_DAYS);
+            List<XYChart.Series<Number, Number>> seriesList = this.getSeries();
+            for (int i = 0; i < seriesList.size(); i++) {
+                int count = this.history.decimate(i, from, to, CHART_POINTS, this.chartPoints);
+                List<XYChart.Data<Number, Number>> data = new ArrayList<>(count);
+                for (int point = 0; point < count; point++) {
+                    int index = this.chartPoints[point];
+                    data.add(new XYChart.Data<>(this.history.getDay(index), this.history.getValue(i, index)));
+                }
+                seriesList.get(i).getData().setAll(data);
+            }
+
+            xAxis.setLowerBound(this.history.getDay(from));
+            xAxis.setUpperBound(this.history.getDay(to - 1));
         }
 
         /**
          * Update current dominant genotype at world.
          */
-        private void updateDominantGenotype() {
-            this.dominantLabel.setText("Dominant genotype: " + this.logger.getDominantGenotype());
+        private void updateDominantGenotype(WorldSnapshot snapshot) {
+            Genome genome = snapshot.getDominantGenome();
+            this.dominantLabel.setText("Dominant genotype: " + (genome == null ? "" : genome));
         }
 
         /**
-         * Update UI of world.
+         * Draw the latest snapshot of world, called once per frame.
+         * Simulation is not blocked while snapshot is drawn, days simulated between frames are not drawn at map,
+         * but their statistics are added to chart.
          */
-        private void updateUI() {
-            this.canvasualizer.updateCanvas();
+        public void render() {
             this.addDataToSeries();
-            this.updateDominantGenotype();
+            WorldSnapshot snapshot = this.world.acquireSnapshot();
+            try {
+                if (this.renderedDay != snapshot.getDay()) {
+                    this.renderedDay = snapshot.getDay();
+                    this.canvasualizer.updateCanvas(snapshot);
+                    this.updateDominantGenotype(snapshot);
+                }
+            } finally {
+                snapshot.release();
+            }
             this.drawSelectedAnimalInfo();
         }
 
@@ -200,13 +355,23 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
          * Draw dominants on canvas.
          */
         public void drawDominants() {
-            for (Field field : this.world.getMap().getFields().values()) {
-                if (field.hasAnimal()) {
-                    //noinspection ConstantConditions // we checked that field has at least one animal
-                    if (field.getAnimals().peek().getGenotype().equals(this.logger.getGenotype())) {
-                        this.canvasualizer.fillDominant(field.getPosition());
-                    }
-                }
+            WorldSnapshot snapshot = this.world.acquireSnapshot();
+            try {
+                this.canvasualizer.fillDominants(snapshot);
+            } finally {
+                snapshot.release();
+            }
+        }
+
+        /**
+         * Return animal at clicked position of map.
+         */
+        public Animal getClickedAnimal(MouseEvent event) {
+            WorldSnapshot snapshot = this.world.acquireSnapshot();
+            try {
+                return this.canvasualizer.getClickedAnimal(event, snapshot);
+            } finally {
+                snapshot.release();
             }
         }
 
@@ -216,22 +381,28 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         private void drawSelectedAnimalInfo() {
             if (this.selectedAnimal != null) {
                 this.childrenLabel.setText("Children: " + this.childrenCount);
-                this.descendantsLabel.setText("Descendants: " + this.selectedDescendants.size());
+                this.descendantsLabel.setText("Descendants: " + this.descendantsCount);
                 this.deathLabel.setText("Is dead: " + this.isDead);
             }
         }
 
         /**
          * Select new animal that will be tracked.
+         * Observers of animals are changed while no day is simulated.
          *
          * @param selectedAnimal Animal to be tracked.
          */
         public void setSelectedAnimal(Animal selectedAnimal) {
-            if (this.selectedAnimal != null) this.selectedAnimal.removeSelectedAnimalActionsObserver(this);
-            this.selectedAnimal = selectedAnimal;
-            this.clearDescendants();
-            this.childrenCount = 0;
-            this.isDead = false;
+            this.world.inspect(() -> {
+                if (this.selectedAnimal != null) this.selectedAnimal.removeSelectedAnimalActionsObserver(this);
+                this.selectedAnimal = selectedAnimal;
+                this.clearDescendants();
+                this.childrenCount = 0;
+                this.isDead = false;
+                if (this.selectedAnimal != null) {
+                    this.selectedAnimal.addSelectedAnimalActionsObserver(this);
+                }
+            });
 
             if (this.selectedAnimal != null) {
                 StringBuilder genotype = new StringBuilder();
@@ -239,8 +410,6 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
                     genotype.append(gene);
                 }
                 this.genotypeLabel.setText("Genotype: " + genotype);
-
-                this.selectedAnimal.addSelectedAnimalActionsObserver(this);
             } else {
                 this.genotypeLabel.setText("Genotype: ");
                 this.childrenLabel.setText("Children: ");
@@ -254,6 +423,7 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
          */
         private void addDescendant(Animal animal) {
             this.selectedDescendants.add(animal);
+            this.descendantsCount = this.selectedDescendants.size();
             animal.addSelectedAnimalActionsObserver(this);
         }
 
@@ -265,6 +435,7 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
                 animal.removeSelectedAnimalActionsObserver(this);
             }
             this.selectedDescendants = new HashSet<>();
+            this.descendantsCount = 0;
         }
 
         /**
@@ -307,7 +478,11 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         public boolean magic = false;
     }
 
-    private final HashMap<World, WorldWrapper> worlds = new HashMap<>();
+    private static final String TOO_BIG_MAP_MESSAGE = "Map can be drawn with at most " + MapCanvasualizer.MAX_SIDE
+            + " fields per side and " + MapCanvasualizer.MAX_FIELDS + " fields, larger worlds can be run headless.";
+
+    // read by simulation threads
+    private final Map<World, WorldWrapper> worlds = new ConcurrentHashMap<>();
 
     @Override
     public void start(Stage primaryStage) {
@@ -359,10 +534,14 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
             }
         });
 
-        main.getChildren().addAll(world1Button, world2Button, div, startButton);
+        Button replayButton = new Button("Replay recorded run");
+        replayButton.setPrefWidth(245);
+        replayButton.setOnMouseClicked(event -> this.replayJournal(primaryStage));
+
+        main.getChildren().addAll(world1Button, world2Button, div, startButton, replayButton);
 
 
-        Scene scene = new Scene(main, 265, 140);
+        Scene scene = new Scene(main, 265, 175);
         primaryStage.setScene(scene);
         primaryStage.show();
 
@@ -432,16 +611,30 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         stage.setScene(worldsScene);
         stage.show();
 
+        // worlds are drawn once per frame, independently of speed of simulation
+        AnimationTimer renderer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                wrapper1.render();
+                wrapper2.render();
+            }
+        };
+        renderer.start();
+
         stage.setOnCloseRequest(event -> {
+            renderer.stop();
             world1.stop();
             world1.removeNextSimulatedDayObserver(this);
             if (world1Settings.magic) world1.removeMagicDayObserver(this);
             this.worlds.remove(world1);
+            // day in progress may still append statistics, so wrapper is closed between days
+            world1.inspect(wrapper1::close);
 
             world2.stop();
             world2.removeNextSimulatedDayObserver(this);
             if (world2Settings.magic) world2.removeMagicDayObserver(this);
             this.worlds.remove(world2);
+            world2.inspect(wrapper2::close);
 
             primaryStage.show();
         });
@@ -450,6 +643,156 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         world2.run();
     }
 
+    /**
+     * Open journal chosen by user and play it back at stage with map, day slider and speed slider.
+     *
+     * @param primaryStage Stage from which replay is opened, shown again when replay is closed.
+     */
+    private void replayJournal(Stage primaryStage) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Open recorded run");
+        fileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Event journals", "*.journal"));
+
+        File file = fileChooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+
+        EventJournalReplayer replayer;
+        try {
+            replayer = new EventJournalReplayer(file.toPath());
+        } catch (IOException e) {
+            new Alert(Alert.AlertType.ERROR, e.toString(), ButtonType.OK).show();
+            return;
+        }
+        World replayedWorld = replayer.getWorld();
+        if (!MapCanvasualizer.canDraw(replayedWorld.getMap().getWidth(), replayedWorld.getMap().getHeight())) {
+            try {
+                replayer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            new Alert(Alert.AlertType.ERROR, TOO_BIG_MAP_MESSAGE, ButtonType.OK).show();
+            return;
+        }
+        primaryStage.close();
+
+        Stage stage = new Stage();
+        stage.setTitle("Replay of " + file.getName());
+        stage.setResizable(true);
+
+        VBox pane = new VBox();
+        pane.setSpacing(10);
+        pane.setPadding(new Insets(10, 10, 10, 10));
+        pane.setFillWidth(true);
+
+        HBox controls = new HBox();
+        controls.setSpacing(5);
+        ToggleButton playButton = new ToggleButton("Play");
+        Label speedLabel = new Label("Speed [days/s]: ");
+        Slider speedSlider = new Slider(1, 1000, 10);
+        Label dayLabel = new Label();
+        controls.getChildren().addAll(playButton, speedLabel, speedSlider, dayLabel);
+        pane.getChildren().add(controls);
+
+        Slider daySlider = new Slider(replayer.getFirstDay(), replayer.getLastDay(), replayer.getFirstDay());
+        pane.getChildren().add(daySlider);
+
+        World world = replayer.getWorld();
+        Canvas canvas = new Canvas();
+        canvas.widthProperty().bind(pane.widthProperty().subtract(25));
+        canvas.heightProperty().bind(canvas.widthProperty().multiply((double) world.getMap().getHeight() / world.getMap().getWidth()));
+        pane.getChildren().add(canvas);
+
+        // map is drawn by animation timer, days are replayed according to time elapsed since previous frame
+        AnimationTimer player = new AnimationTimer() {
+            private static final int MAX_DAYS_PER_FRAME = 1000;
+
+            private World drawnWorld = null;
+            private MapCanvasualizer canvasualizer;
+            private long lastFrame = -1;
+            private double pendingDays = 0;
+            private boolean seeking = false;
+
+            {
+                daySlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+                    if (!this.seeking) {
+                        seek(newValue.intValue());
+                    }
+                });
+            }
+
+            private void seek(int day) {
+                try {
+                    replayer.seek(day);
+                } catch (IOException e) {
+                    playButton.setSelected(false);
+                    new Alert(Alert.AlertType.ERROR, e.toString(), ButtonType.OK).show();
+                }
+                draw();
+            }
+
+            private void draw() {
+                if (this.drawnWorld != replayer.getWorld()) {
+                    // replayer loads new world when it goes back in time
+                    this.drawnWorld = replayer.getWorld();
+                    this.canvasualizer = new MapCanvasualizer(this.drawnWorld.getMap(), canvas);
+                }
+                // replayed state is not published by simulation
+                this.drawnWorld.publishSnapshot();
+                WorldSnapshot snapshot = this.drawnWorld.acquireSnapshot();
+                try {
+                    this.canvasualizer.updateCanvas(snapshot);
+                    dayLabel.setText("Day: " + replayer.getDay() + " / " + replayer.getLastDay()
+                            + ", animals: " + snapshot.getLoggedAnimalsCount());
+                } finally {
+                    snapshot.release();
+                }
+
+                this.seeking = true;
+                daySlider.setValue(replayer.getDay());
+                this.seeking = false;
+            }
+
+            @Override
+            public void handle(long now) {
+                if (this.drawnWorld == null) {
+                    draw();
+                }
+                if (!playButton.isSelected() || replayer.getDay() >= replayer.getLastDay()) {
+                    this.lastFrame = -1;
+                    return;
+                }
+                if (this.lastFrame >= 0) {
+                    this.pendingDays += (now - this.lastFrame) / 1e9 * speedSlider.getValue();
+                }
+                this.lastFrame = now;
+
+                int days = (int) Math.min(this.pendingDays, MAX_DAYS_PER_FRAME);
+                if (days == 0) {
+                    return;
+                }
+                this.pendingDays -= days;
+                seek(Math.min(replayer.getDay() + days, replayer.getLastDay()));
+            }
+        };
+
+        Scene scene = new Scene(pane, 800, 650);
+        stage.setScene(scene);
+        stage.show();
+        player.start();
+
+        stage.setOnCloseRequest(event -> {
+            player.stop();
+            try {
+                replayer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            primaryStage.show();
+        });
+    }
+
     /**
      * Open configuration stage of give World wrapper.
      *
@@ -592,6 +935,10 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
                 wrapper.junglePlants = Integer.parseInt(junglePlants_input.getText());
                 wrapper.magic = Boolean.parseBoolean(magicButton.getText());
 
+                if (!MapCanvasualizer.canDraw(wrapper.width, wrapper.height)) {
+                    new Alert(Alert.AlertType.ERROR, TOO_BIG_MAP_MESSAGE, ButtonType.CLOSE).showAndWait();
+                    return;
+                }
                 primaryStage.show();
                 stage.close();
             } catch (Exception e) {
@@ -642,6 +989,9 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         });
         pane.getChildren().add(saveDataButton);
 
+        Button recordButton = new Button("Record events");
+        recordButton.setOnMouseClicked(event -> wrapper.toggleJournal(stage, recordButton));
+
         Label genotypeLabel = new Label("Genotype: ");
         Label childrenLabel = new Label("Children: ");
         Label descendantsLabel = new Label("Descendants: ");
@@ -651,7 +1001,7 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         wrapper.setDescendantsLabel(descendantsLabel);
         wrapper.setDeathLabel(deathLabel);
 
-        div1.getChildren().addAll(pauseButton, saveDataButton, genotypeLabel, childrenLabel, descendantsLabel, deathLabel);
+        div1.getChildren().addAll(pauseButton, saveDataButton, recordButton, genotypeLabel, childrenLabel, descendantsLabel, deathLabel);
 
 
         Canvas canvas = new Canvas();
@@ -665,7 +1015,7 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
             // select animal
             Animal animal = null;
             if (!wrapper.getWorld().isRunning()) {
-                animal = wrapper.getCanvasualizer().getClickedAnimal(event);
+                animal = wrapper.getClickedAnimal(event);
             }
 
             Animal finalAnimal = animal;
@@ -715,7 +1065,10 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
         }
         lineChart.prefWidthProperty().bind(pane.widthProperty());
 
-        pane.getChildren().add(lineChart);
+        CheckBox wholeRunBox = new CheckBox("Show whole run");
+        wholeRunBox.selectedProperty().addListener((observable, oldValue, newValue) -> wrapper.setWholeRun(newValue));
+
+        pane.getChildren().addAll(lineChart, wholeRunBox);
 
         return pane;
     }
@@ -728,16 +1081,10 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
      */
     @Override
     public void onNextSimulatedDay(World world) {
-        // creating future task will ensure us that we will see updated UI before next simulation day will start
-        FutureTask<Void> futureUI = new FutureTask<>(() -> updateUI(world), null);
-
-        Platform.runLater(futureUI);
-
-        try {
-            // wait for ui draw
-            futureUI.get();
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+        // only statistics are recorded, map is drawn by render loop
+        WorldWrapper wrapper = this.worlds.get(world);
+        if (wrapper != null) {
+            wrapper.recordDay();
         }
     }
 
@@ -748,15 +1095,4 @@ public class App extends Application implements INextSimulatedDayObserver, IMagi
     public void onMagicDay(World world) {
         Platform.runLater(() -> this.worlds.get(world).announceMagicDay());
     }
-
-    /**
-     * Update UI of given World.
-     */
-    private void updateUI(World world) {
-        try {
-            WorldWrapper wrapper = this.worlds.get(world);
-            wrapper.updateUI();
-        } catch (Exception ignored) { // when closing stage wrapper can be null
-        }
-    }
 }
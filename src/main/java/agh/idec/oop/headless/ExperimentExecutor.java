@@ -0,0 +1,235 @@
+package agh.idec.oop.headless;
+
+import agh.idec.oop.World;
+import agh.idec.oop.utils.CSVWriter;
+import agh.idec.oop.utils.WorldInformationLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Run many worlds in parallel for a grid of parameters and aggregate results.<br>
+ * Arguments are given as name=value pairs, value of world parameter can be a comma separated list,
+ * ex. {@code width=50,100 jungleRatio=0.1,0.2 seeds=10 days=5000 output=summary.csv}.
+ * Every combination of world parameters is simulated once for every seed.
+ * Worlds are run on a work stealing pool with one thread per core (or {@code threads}),
+ * so a long lived world occupies only one worker while the others take remaining worlds.
+ */
+public class ExperimentExecutor {
+    private final List<WorldSettings> configurations;
+    private final long baseSeed;
+    private final int seeds;
+    private final int days;
+    private final int threads;
+
+    private final AtomicInteger finishedRuns = new AtomicInteger();
+
+    /**
+     * Result of one simulated world.
+     */
+    private static class RunResult {
+        final int daysSimulated;
+        final boolean extinct;
+        final int animalsCount;
+        final int plantsCount;
+        final float averageEnergy;
+        final float averageLifeLength;
+        final float averageChildrenCount;
+        final double daysPerSecond;
+
+        RunResult(int daysSimulated, boolean extinct, WorldInformationLogger logger, double daysPerSecond) {
+            this.daysSimulated = daysSimulated;
+            this.extinct = extinct;
+            this.animalsCount = logger.getAnimalsCount();
+            this.plantsCount = logger.getPlantsCount();
+            this.averageEnergy = logger.getAverageEnergy();
+            this.averageLifeLength = logger.getAverageAnimalsLifeLength();
+            this.averageChildrenCount = logger.getAverageChildrenCount();
+            this.daysPerSecond = daysPerSecond;
+        }
+    }
+
+    public ExperimentExecutor(List<WorldSettings> configurations, long baseSeed, int seeds, int days, int threads) {
+        if (seeds <= 0 || days <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("Count of seeds, days and threads has to be positive.");
+        }
+        this.configurations = configurations;
+        this.baseSeed = baseSeed;
+        this.seeds = seeds;
+        this.days = days;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        long baseSeed = 0;
+        int seeds = 1;
+        int days = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File output = new File("summary.csv");
+
+        List<WorldSettings> configurations;
+        try {
+            for (String arg : args) {
+                String[] pair = arg.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Argument is not name=value pair: " + arg);
+                }
+                switch (pair[0]) {
+                    case "seed" -> baseSeed = Long.parseLong(pair[1]);
+                    case "seeds" -> seeds = Integer.parseInt(pair[1]);
+                    case "days" -> days = Integer.parseInt(pair[1]);
+                    case "threads" -> threads = Integer.parseInt(pair[1]);
+                    case "output" -> output = new File(pair[1]);
+                    default -> {
+                        if (!WorldSettings.isParameter(pair[0])) {
+                            throw new IllegalArgumentException("Unknown parameter: " + pair[0]);
+                        }
+                        parameters.put(pair[0], Arrays.asList(pair[1].split(",")));
+                    }
+                }
+            }
+            configurations = grid(parameters);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        try {
+            ExperimentExecutor executor = new ExperimentExecutor(configurations, baseSeed, seeds, days, threads);
+            long start = System.nanoTime();
+            executor.run(output);
+            System.out.printf("Finished %d runs in %.3f s, summary written to %s%n", configurations.size() * seeds,
+                    (System.nanoTime() - start) / 1e9, output.getAbsolutePath());
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Create every combination of given parameter values.
+     *
+     * @param parameters Values of world parameters, not listed parameters have default values.
+     * @return List of settings.
+     */
+    public static List<WorldSettings> grid(Map<String, List<String>> parameters) {
+        List<WorldSettings> configurations = new ArrayList<>();
+        configurations.add(new WorldSettings());
+
+        for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+            List<WorldSettings> expanded = new ArrayList<>();
+            for (WorldSettings configuration : configurations) {
+                for (String value : parameter.getValue()) {
+                    WorldSettings settings = configuration.copy();
+                    settings.set(parameter.getKey(), value.trim());
+                    expanded.add(settings);
+                }
+            }
+            configurations = expanded;
+        }
+        return configurations;
+    }
+
+    /**
+     * Run all worlds and write summary table with one line per configuration.
+     *
+     * @param output Csv file of summary.
+     */
+    public void run(File output) throws IOException, InterruptedException, ExecutionException {
+        int runs = this.configurations.size() * this.seeds;
+        ForkJoinPool pool = new ForkJoinPool(this.threads);
+        List<Future<RunResult>> results = new ArrayList<>(runs);
+
+        try {
+            for (WorldSettings configuration : this.configurations) {
+                for (int i = 0; i < this.seeds; i++) {
+                    long seed = this.baseSeed + i;
+                    results.add(pool.submit(() -> simulate(configuration, seed, runs)));
+                }
+            }
+
+            CSVWriter csvWriter = new CSVWriter(output);
+            csvWriter.writeData(Arrays.asList("width", "height", "jungle_ratio", "wrap_around", "animals", "energy",
+                    "move_energy", "plant_energy", "steppe_plants", "jungle_plants", "magic", "seeds", "extinct_runs",
+                    "average_days", "animals_count", "plants_count", "average_energy", "average_life_length",
+                    "average_children_count", "days_per_second"));
+
+            for (int c = 0; c < this.configurations.size(); c++) {
+                List<RunResult> configurationResults = new ArrayList<>(this.seeds);
+                for (int i = 0; i < this.seeds; i++) {
+                    configurationResults.add(results.get(c * this.seeds + i).get());
+                }
+                csvWriter.writeData(summarize(this.configurations.get(c), configurationResults));
+            }
+            csvWriter.close();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Simulate one world until given day or until all animals die.
+     */
+    private RunResult simulate(WorldSettings settings, long seed, int runs) {
+        World world = settings.createWorld(0, seed);
+        WorldInformationLogger logger = world.getLogger();
+
+        long start = System.nanoTime();
+        int day = 0;
+        boolean extinct = false;
+        while (day < this.days && !extinct) {
+            world.simulateDay();
+            day++;
+            extinct = world.getMap().getAnimals().isEmpty();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        logger.log(); // collect statistics of final state
+
+        int finished = this.finishedRuns.incrementAndGet();
+        if (finished % Math.max(1, runs / 20) == 0 || finished == runs) {
+            System.out.printf("Finished %d/%d runs%n", finished, runs);
+        }
+        return new RunResult(day, extinct, logger, day / Math.max(seconds, 1e-9));
+    }
+
+    /**
+     * Create summary line of configuration with averages of its runs.
+     */
+    private static List<String> summarize(WorldSettings settings, List<RunResult> results) {
+        int extinct = 0;
+        double days = 0, animals = 0, plants = 0, energy = 0, lifeLength = 0, children = 0, daysPerSecond = 0;
+        for (RunResult result : results) {
+            extinct += result.extinct ? 1 : 0;
+            days += result.daysSimulated;
+            animals += result.animalsCount;
+            plants += result.plantsCount;
+            energy += result.averageEnergy;
+            lifeLength += result.averageLifeLength;
+            children += result.averageChildrenCount;
+            daysPerSecond += result.daysPerSecond;
+        }
+        int n = results.size();
+
+        return Arrays.asList(Integer.toString(settings.width), Integer.toString(settings.height),
+                Float.toString(settings.jungleRatio), Boolean.toString(settings.wrapAround),
+                Integer.toString(settings.animals), Float.toString(settings.energy),
+                Float.toString(settings.moveEnergy), Float.toString(settings.plantEnergy),
+                Integer.toString(settings.steppePlants), Integer.toString(settings.junglePlants),
+                Boolean.toString(settings.magic), Integer.toString(n), Integer.toString(extinct),
+                Float.toString((float) (days / n)), Float.toString((float) (animals / n)),
+                Float.toString((float) (plants / n)), Float.toString((float) (energy / n)),
+                Float.toString((float) (lifeLength / n)), Float.toString((float) (children / n)),
+                Float.toString((float) (daysPerSecond / n)));
+    }
+}
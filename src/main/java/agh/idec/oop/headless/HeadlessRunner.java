@@ -0,0 +1,175 @@
+package agh.idec.oop.headless;
+
+import agh.idec.oop.World;
+import agh.idec.oop.utils.BinaryStatsWriter;
+import agh.idec.oop.utils.CSVWriter;
+import agh.idec.oop.utils.DayMetrics;
+import agh.idec.oop.utils.EventJournalReplayer;
+import agh.idec.oop.utils.StatsSink;
+import agh.idec.oop.utils.WorldInformationLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Run simulation without graphic interface as fast as possible.<br>
+ * Arguments are given as name=value pairs, ex. {@code days=100000 seed=7 width=100 height=100 output=stats.csv}.
+ * Names of world parameters are the same as fields of {@link WorldSettings}.
+ * Statistics of every day are streamed to csv file in format used by {@link CSVWriter#writeSeries},
+ * the file is gzipped if its name ends with .gz. Files with names ending with .bin are written
+ * in binary format of {@link BinaryStatsWriter}.
+ * With {@code profile=true} time and memory allocated in phases of day are summed and printed at the end.
+ * With {@code journal=run.journal} events of all days are recorded for {@link EventJournalReplayer}.
+ */
+public class HeadlessRunner {
+    private static final List<String> HEADER = Arrays.asList("day", "animals_count", "plants_count", "average_energy", "average_life_length", "average_children_count");
+
+    private final WorldSettings settings;
+    private final long seed;
+    private final int days;
+    private final File output;
+    private boolean profile = false;
+    private File journal = null;
+
+    public HeadlessRunner(WorldSettings settings, long seed, int days, File output) {
+        this.settings = settings;
+        this.seed = seed;
+        this.days = days;
+        this.output = output;
+    }
+
+    /**
+     * Enable or disable summary of time spent in phases of day.
+     *
+     * @param profile True to print summary.
+     */
+    public void setProfile(boolean profile) {
+        this.profile = profile;
+    }
+
+    /**
+     * Set file where events of simulated days are recorded.
+     *
+     * @param journal Journal file or null to not record events.
+     */
+    public void setJournal(File journal) {
+        this.journal = journal;
+    }
+
+    public static void main(String[] args) {
+        WorldSettings settings = new WorldSettings();
+        long seed = new Random().nextLong();
+        int days = 1000;
+        File output = new File("stats.csv");
+        boolean profile = false;
+        File journal = null;
+
+        try {
+            for (String arg : args) {
+                String[] pair = arg.split("=", 2);
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Argument is not name=value pair: " + arg);
+                }
+                switch (pair[0]) {
+                    case "seed" -> seed = Long.parseLong(pair[1]);
+                    case "days" -> days = Integer.parseInt(pair[1]);
+                    case "output" -> output = new File(pair[1]);
+                    case "profile" -> profile = Boolean.parseBoolean(pair[1]);
+                    case "journal" -> journal = new File(pair[1]);
+                    default -> settings.set(pair[0], pair[1]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+
+        try {
+            HeadlessRunner runner = new HeadlessRunner(settings, seed, days, output);
+            runner.setProfile(profile);
+            runner.setJournal(journal);
+            runner.run();
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Simulate all days back to back and write statistics of every day.
+     */
+    public void run() throws IOException {
+        System.out.println("Settings: " + this.settings + " seed=" + this.seed + " days=" + this.days);
+
+        World world = this.settings.createWorld(0, this.seed);
+        WorldInformationLogger logger = world.getLogger();
+
+        DayMetrics.Phase[] phases = DayMetrics.Phase.values();
+        long[] phaseNanos = new long[phases.length];
+        long[] phaseBytes = new long[phases.length];
+        long[] events = new long[4];
+        if (this.profile) {
+            world.setAllocationTracking(true);
+            world.addDayMetricsObserver((simulated, metrics) -> {
+                for (DayMetrics.Phase phase : phases) {
+                    phaseNanos[phase.ordinal()] += metrics.getNanos(phase);
+                    phaseBytes[phase.ordinal()] += metrics.getAllocatedBytes(phase);
+                }
+                events[0] += metrics.getMoves();
+                events[1] += metrics.getBirths();
+                events[2] += metrics.getDeaths();
+                events[3] += metrics.getPlantsEaten();
+            });
+        }
+
+        boolean binary = this.output.getName().endsWith(".bin");
+        long elapsed;
+        // files are closed also when simulation fails, so statistics of simulated days are not lost
+        try (StatsSink sink = binary ? null : new StatsSink(this.output.toPath(), HEADER);
+             BinaryStatsWriter binaryWriter = binary ? new BinaryStatsWriter(this.output.toPath()) : null) {
+            if (this.journal != null) {
+                world.startJournal(this.journal.toPath());
+            }
+
+            long start = System.nanoTime();
+            try {
+                for (int day = 0; day < this.days; day++) {
+                    world.simulateDay(); // logger holds statistics collected at the beginning of the day
+
+                    if (binary) {
+                        binaryWriter.append(day, logger);
+                    } else {
+                        sink.append(day, logger.getAnimalsCount(), logger.getPlantsCount(), logger.getAverageEnergy(),
+                                logger.getAverageAnimalsLifeLength(), logger.getAverageChildrenCount());
+                    }
+                }
+            } finally {
+                world.stopJournal();
+            }
+            elapsed = System.nanoTime() - start;
+        }
+
+        double seconds = elapsed / 1e9;
+        System.out.printf("Simulated %d days in %.3f s (%.1f days/s), animals left: %d%n",
+                this.days, seconds, this.days / seconds, world.getMap().getAnimals().size());
+        System.out.println("Statistics written to " + this.output.getAbsolutePath());
+        if (this.journal != null) {
+            System.out.println("Events written to " + this.journal.getAbsolutePath());
+        }
+
+        if (this.profile) {
+            int days = Math.max(this.days, 1);
+            System.out.printf("Events per day: moves %.1f, births %.1f, deaths %.1f, plants eaten %.1f%n",
+                    (double) events[0] / days, (double) events[1] / days,
+                    (double) events[2] / days, (double) events[3] / days);
+            for (DayMetrics.Phase phase : phases) {
+                System.out.printf("%-14s %10.3f ms %8.1f us/day %12d B/day%n", phase,
+                        phaseNanos[phase.ordinal()] / 1e6, phaseNanos[phase.ordinal()] / 1e3 / days,
+                        phaseBytes[phase.ordinal()] / days);
+            }
+        }
+    }
+}
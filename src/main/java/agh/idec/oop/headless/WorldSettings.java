@@ -0,0 +1,94 @@
+package agh.idec.oop.headless;
+
+import agh.idec.oop.World;
+
+/**
+ * Store config variables of world used without graphic interface.
+ */
+public class WorldSettings {
+    public int width = 20;
+    public int height = 20;
+    public float jungleRatio = 0.1f;
+    public boolean wrapAround = true;
+    public int animals = 100;
+    public float energy = 100;
+    public float moveEnergy = 1.0f;
+    public float plantEnergy = 10;
+    public int steppePlants = 1;
+    public int junglePlants = 3;
+    public boolean magic = false;
+
+    /**
+     * Set parameter of world by its name.
+     *
+     * @param name  Name of parameter, the same as name of field.
+     * @param value Value of parameter.
+     * @throws IllegalArgumentException If there is no parameter with given name or value is not valid.
+     */
+    public void set(String name, String value) throws IllegalArgumentException {
+        switch (name) {
+            case "width" -> this.width = Integer.parseInt(value);
+            case "height" -> this.height = Integer.parseInt(value);
+            case "jungleRatio" -> this.jungleRatio = Float.parseFloat(value);
+            case "wrapAround" -> this.wrapAround = Boolean.parseBoolean(value);
+            case "animals" -> this.animals = Integer.parseInt(value);
+            case "energy" -> this.energy = Float.parseFloat(value);
+            case "moveEnergy" -> this.moveEnergy = Float.parseFloat(value);
+            case "plantEnergy" -> this.plantEnergy = Float.parseFloat(value);
+            case "steppePlants" -> this.steppePlants = Integer.parseInt(value);
+            case "junglePlants" -> this.junglePlants = Integer.parseInt(value);
+            case "magic" -> this.magic = Boolean.parseBoolean(value);
+            default -> throw new IllegalArgumentException("Unknown world parameter: " + name);
+        }
+    }
+
+    /**
+     * Check if world has parameter with given name.
+     */
+    public static boolean isParameter(String name) {
+        return switch (name) {
+            case "width", "height", "jungleRatio", "wrapAround", "animals", "energy", "moveEnergy",
+                    "plantEnergy", "steppePlants", "junglePlants", "magic" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Return copy of settings.
+     */
+    public WorldSettings copy() {
+        WorldSettings copy = new WorldSettings();
+        copy.width = this.width;
+        copy.height = this.height;
+        copy.jungleRatio = this.jungleRatio;
+        copy.wrapAround = this.wrapAround;
+        copy.animals = this.animals;
+        copy.energy = this.energy;
+        copy.moveEnergy = this.moveEnergy;
+        copy.plantEnergy = this.plantEnergy;
+        copy.steppePlants = this.steppePlants;
+        copy.junglePlants = this.junglePlants;
+        copy.magic = this.magic;
+        return copy;
+    }
+
+    /**
+     * Create world using settings.
+     *
+     * @param delay Delay between days when world is running.
+     * @param seed  Seed of world.
+     * @return New world.
+     */
+    public World createWorld(long delay, long seed) {
+        return new World(delay, wrapAround, width, height, jungleRatio, animals, energy, moveEnergy,
+                plantEnergy, steppePlants, junglePlants, magic, seed);
+    }
+
+    @Override
+    public String toString() {
+        return "width=" + width + " height=" + height + " jungleRatio=" + jungleRatio + " wrapAround=" + wrapAround
+                + " animals=" + animals + " energy=" + energy + " moveEnergy=" + moveEnergy
+                + " plantEnergy=" + plantEnergy + " steppePlants=" + steppePlants + " junglePlants=" + junglePlants
+                + " magic=" + magic;
+    }
+}
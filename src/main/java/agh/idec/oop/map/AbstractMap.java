@@ -2,17 +2,26 @@ package agh.idec.oop.map;
 
 import agh.idec.oop.Vector2D;
 import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
 import agh.idec.oop.element.IMapElement;
+import agh.idec.oop.element.Occupants;
 import agh.idec.oop.element.Plant;
 import agh.idec.oop.field.Field;
 import agh.idec.oop.field.FieldType;
-import agh.idec.oop.field.IMapField;
+import agh.idec.oop.field.FreeFields;
 import agh.idec.oop.observables.IPositionChangedObserver;
+import agh.idec.oop.utils.CheckpointReader;
+import agh.idec.oop.utils.CheckpointWriter;
 import agh.idec.oop.utils.MapVisualizer;
+import agh.idec.oop.utils.SplitRandom;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.List;
 
 public class AbstractMap implements IMap, IPositionChangedObserver {
 
@@ -24,11 +33,27 @@ public class AbstractMap implements IMap, IPositionChangedObserver {
     private final int jungleWidth;
     private final int jungleHeight;
 
-    private final HashMap<Vector2D, Field> fields = new HashMap<>();
-    private final HashSet<Animal> animals = new HashSet<>();
+    /**
+     * Fields stored row by row, field at (x, y) is at index y * width + x.
+     */
+    private final Field[] fields;
+    private final List<Field> fieldsView;
+    private final EnumMap<FieldType, FreeFields> freeFields = new EnumMap<>(FieldType.class);
+    private final AnimalStore animals;
     private final HashSet<Plant> plants = new HashSet<>();
 
     public AbstractMap(int width, int height, int jungleWidth, int jungleHeight) {
+        this(width, height, jungleWidth, jungleHeight, new AnimalStore());
+    }
+
+    /**
+     * @param seed Seed of random streams of animals living on map.
+     */
+    public AbstractMap(int width, int height, int jungleWidth, int jungleHeight, long seed) {
+        this(width, height, jungleWidth, jungleHeight, new AnimalStore(seed));
+    }
+
+    private AbstractMap(int width, int height, int jungleWidth, int jungleHeight, AnimalStore animals) {
         if (width <= 0 || height <= 0) {
             throw new IllegalArgumentException("Size of map is too small.");
         }
@@ -45,39 +70,53 @@ public class AbstractMap implements IMap, IPositionChangedObserver {
         this.jungleWidth = jungleWidth;
         this.jungleHeight = jungleHeight;
 
+        this.animals = animals;
+        this.fields = new Field[width * height];
+        this.fieldsView = Collections.unmodifiableList(Arrays.asList(this.fields));
         generateFields();
     }
 
     private void generateFields() {
-        int y = (height / 2) - (jungleHeight / 2);
-        int x = (width / 2) - (jungleWidth / 2);
-
-        for (int j = y; j < y + jungleHeight; j++) {
-            for (int i = x; i < x + jungleWidth; i++) {
-                Vector2D position = new Vector2D(i, j);
-                this.fields.put(position, new Field(FieldType.JUNGLE, position));
+        int jungleY = (height / 2) - (jungleHeight / 2);
+        int jungleX = (width / 2) - (jungleWidth / 2);
+
+        int jungleArea = jungleWidth * jungleHeight;
+        this.freeFields.put(FieldType.JUNGLE, new FreeFields(jungleArea));
+        this.freeFields.put(FieldType.STEPPE, new FreeFields(width * height - jungleArea));
+
+        for (int y = 0; y < this.height; y++) {
+            boolean jungleRow = y >= jungleY && y < jungleY + jungleHeight;
+            for (int x = 0; x < this.width; x++) {
+                boolean jungle = jungleRow && x >= jungleX && x < jungleX + jungleWidth;
+                Field field = new Field(jungle ? FieldType.JUNGLE : FieldType.STEPPE, new Vector2D(x, y));
+                this.fields[y * this.width + x] = field;
+                this.freeFields.get(field.getType()).add(field);
             }
         }
+    }
 
-        for (y = 0; y < this.height; y++) {
-            for (x = 0; x < this.width; x++) {
-                Vector2D position = new Vector2D(x, y);
-                if (!this.fields.containsKey(position)) {
-                    this.fields.put(position, new Field(FieldType.STEPPE, position));
-                }
-            }
-        }
+    /**
+     * Check if coordinates are inside map bounds.
+     */
+    private boolean isInside(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
     }
 
 
     public boolean canMoveTo(Vector2D position) {
-        return (position.getX() >= 0 && position.getX() < width && position.getY() >= 0 && position.getY() < height);
+        return isInside(position.getX(), position.getY());
+    }
+
+    @Override
+    public long step(int x, int y, int dx, int dy) {
+        x += dx;
+        y += dy;
+        return isInside(x, y) ? Vector2D.pack(x, y) : BLOCKED;
     }
 
     @Override
     public void place(IMapElement element) throws IllegalArgumentException {
-        Vector2D position = element.getPosition();
-        IMapField field = fields.get(position);
+        Field field = fieldAt(element.getPosition());
 
         if (field != null) {
             if (element instanceof Plant plant) {
@@ -90,16 +129,16 @@ public class AbstractMap implements IMap, IPositionChangedObserver {
                 }
 
             } else if (element instanceof Animal animal) {
+                // animal is already stored in animal store since its creation
                 Plant plant = field.removePlant();
                 if (plant != null) {
                     plants.remove(plant);
                 }
 
-                animals.add(animal);
                 field.add(animal);
                 animal.addPositionChangedObserver(this);
             }
-
+            updateFree(field);
 
         } else {
             throw new IllegalArgumentException("Element is out of bound.");
@@ -109,8 +148,7 @@ public class AbstractMap implements IMap, IPositionChangedObserver {
 
     @Override
     public void pop(IMapElement element) throws IllegalArgumentException {
-        Vector2D position = element.getPosition();
-        Field field = fields.get(position);
+        Field field = fieldAt(element.getPosition());
 
         if (field != null) {
             if (element instanceof Plant plant) {
@@ -122,7 +160,7 @@ public class AbstractMap implements IMap, IPositionChangedObserver {
                 animals.remove(animal);
                 animal.removePositionChangedObserver(this);
             }
-
+            updateFree(field);
 
         } else {
             throw new IllegalArgumentException("Element is out of bound.");
@@ -130,23 +168,77 @@ public class AbstractMap implements IMap, IPositionChangedObserver {
     }
 
     @Override
-    public HashMap<Vector2D, Field> getFields() {
-        return this.fields;
+    public List<Field> getFields() {
+        return this.fieldsView;
     }
 
-    public HashSet<Animal> getAnimals() {
+    @Override
+    public Field fieldAt(int x, int y) {
+        return this.fields[y * this.width + x];
+    }
+
+    @Override
+    public Field fieldAt(Vector2D position) {
+        if (!isInside(position.getX(), position.getY())) {
+            return null;
+        }
+        return fieldAt(position.getX(), position.getY());
+    }
+
+    @Override
+    public FieldType typeAt(int x, int y) {
+        return fieldAt(x, y).getType();
+    }
+
+    @Override
+    public Collection<Animal> getAnimals() {
         return animals;
     }
 
+    @Override
+    public AnimalStore getAnimalStore() {
+        return animals;
+    }
+
+    @Override
     public HashSet<Plant> getPlants() {
         return plants;
     }
 
 
     @Override
-    public PriorityQueue<Animal> getAnimalsAt(Vector2D position) {
-        Field field = fields.get(position);
-        return field.getAnimals();
+    public Occupants getAnimalsAt(Vector2D position) {
+        return fieldAt(position.getX(), position.getY()).getAnimals();
+    }
+
+    /**
+     * Update free fields set after content of field has changed.
+     */
+    private void updateFree(Field field) {
+        this.freeFields.get(field.getType()).update(field);
+    }
+
+    @Override
+    public int getFreeFieldsCount(FieldType type) {
+        return this.freeFields.get(type).size();
+    }
+
+    @Override
+    public Field randomFreeField(FieldType type, SplitRandom random) {
+        return this.freeFields.get(type).random(random);
+    }
+
+    @Override
+    public Field randomFreeField(SplitRandom random) {
+        FreeFields jungle = this.freeFields.get(FieldType.JUNGLE);
+        FreeFields steppe = this.freeFields.get(FieldType.STEPPE);
+
+        int count = jungle.size() + steppe.size();
+        if (count == 0) {
+            return null;
+        }
+        int index = random.nextInt(count);
+        return index < jungle.size() ? jungle.get(index) : steppe.get(index - jungle.size());
     }
 
     @Override
@@ -160,14 +252,77 @@ public class AbstractMap implements IMap, IPositionChangedObserver {
     }
 
     @Override
-    public void positionChanged(Animal animal, Vector2D oldPosition) {
-        Vector2D newPosition = animal.getPosition();
+    public int getJungleWidth() {
+        return jungleWidth;
+    }
+
+    @Override
+    public int getJungleHeight() {
+        return jungleHeight;
+    }
 
-        Field oldField = fields.get(oldPosition);
-        Field newField = fields.get(newPosition);
+    private int indexOf(Field field) {
+        return field.getPosition().getY() * this.width + field.getPosition().getX();
+    }
+
+    @Override
+    public void writeTo(CheckpointWriter out) throws IOException {
+        this.animals.writeTo(out);
+
+        out.putInt(this.plants.size());
+        for (Plant plant : this.plants) {
+            out.putInt(indexOf(fieldAt(plant.getPosition())));
+        }
+
+        // order of free fields decides which fields are drawn for new plants
+        for (FieldType type : FieldType.values()) {
+            FreeFields free = this.freeFields.get(type);
+            out.putInt(free.size());
+            for (int i = 0; i < free.size(); i++) {
+                out.putInt(indexOf(free.get(i)));
+            }
+        }
+    }
+
+    @Override
+    public void readFrom(CheckpointReader in, float startEnergy) throws IOException {
+        if (!this.plants.isEmpty() || !this.animals.isEmpty()) {
+            throw new IllegalStateException("Checkpoint can be read only into empty map.");
+        }
+
+        this.animals.readFrom(in, this, startEnergy);
+        for (Animal animal : this.animals) {
+            animal.addPositionChangedObserver(this);
+        }
+
+        int plantsCount = in.getInt();
+        for (int i = 0; i < plantsCount; i++) {
+            Field field = this.fields[in.getInt()];
+            Plant plant = new Plant(field.getPosition());
+            field.setPlant(plant);
+            this.plants.add(plant);
+        }
+
+        for (FieldType type : FieldType.values()) {
+            FreeFields free = this.freeFields.get(type);
+            free.clear();
+            int count = in.getInt();
+            for (int i = 0; i < count; i++) {
+                free.add(this.fields[in.getInt()]);
+            }
+        }
+    }
+
+    @Override
+    public void positionChanged(Animal animal, int oldX, int oldY) {
+        Field oldField = fieldAt(oldX, oldY);
+        Field newField = fieldAt(animal.getX(), animal.getY());
 
         oldField.remove(animal);
         newField.add(animal);
+
+        updateFree(oldField);
+        updateFree(newField);
     }
 
 
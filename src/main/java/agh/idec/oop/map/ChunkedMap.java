@@ -0,0 +1,542 @@
+package agh.idec.oop.map;
+
+import agh.idec.oop.Vector2D;
+import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
+import agh.idec.oop.element.IMapElement;
+import agh.idec.oop.element.Occupants;
+import agh.idec.oop.element.Plant;
+import agh.idec.oop.field.Field;
+import agh.idec.oop.field.FieldType;
+import agh.idec.oop.observables.IPositionChangedObserver;
+import agh.idec.oop.utils.CheckpointReader;
+import agh.idec.oop.utils.CheckpointWriter;
+import agh.idec.oop.utils.MapVisualizer;
+import agh.idec.oop.utils.SplitRandom;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Sparse map for very large, mostly empty worlds.<br>
+ * Map is split into chunks of 8 x 8 fields. A chunk is allocated when an element is first placed at one of its fields,
+ * its fields are created on demand, and the whole chunk is released when the last animal or plant leaves it.
+ * Reading fields does not allocate chunks, empty fields which are not kept are returned as new detached fields.
+ * Every chunk keeps a bit mask of its occupied fields (with animals or plants), so memory depends on populated area
+ * instead of size of map. Chunks are small, because plants grow at random fields all over the map.<br>
+ * Free fields for plants are drawn by rejection sampling: a uniformly random field of given type is free
+ * if its chunk is not allocated or its bit is not set. Only when free fields are scarce they are counted
+ * chunk by chunk, skipping unallocated and full chunks.
+ */
+public class ChunkedMap implements IMap, IPositionChangedObserver {
+    private static final int CHUNK_SHIFT = 3;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final long ROW_MASK = (1L << CHUNK_SIZE) - 1;
+
+    /**
+     * Random fields drawn before free fields are counted chunk by chunk.
+     */
+    private static final int SAMPLING_TRIES = 64;
+
+    /**
+     * Fields of a square part of map, with summary of their occupancy.
+     */
+    private static final class Chunk {
+        // fields stored row by row, created on demand
+        private final Field[] fields = new Field[CHUNK_SIZE * CHUNK_SIZE];
+        // bit of field is set if field has animal or plant
+        private long occupied = 0;
+    }
+
+    private final MapVisualizer mapVisualizer = new MapVisualizer(this);
+
+    private final int width;
+    private final int height;
+
+    private final int jungleWidth;
+    private final int jungleHeight;
+    private final int jungleX;
+    private final int jungleY;
+
+    private final int chunksWidth;
+    private final Chunk[] chunks;
+    private final List<Field> fieldsView;
+
+    private final EnumMap<FieldType, Integer> occupiedFields = new EnumMap<>(FieldType.class);
+    private final AnimalStore animals;
+    private final HashSet<Plant> plants = new HashSet<>();
+
+    public ChunkedMap(int width, int height, int jungleWidth, int jungleHeight) {
+        this(width, height, jungleWidth, jungleHeight, new AnimalStore());
+    }
+
+    /**
+     * @param seed Seed of random streams of animals living on map.
+     */
+    public ChunkedMap(int width, int height, int jungleWidth, int jungleHeight, long seed) {
+        this(width, height, jungleWidth, jungleHeight, new AnimalStore(seed));
+    }
+
+    private ChunkedMap(int width, int height, int jungleWidth, int jungleHeight, AnimalStore animals) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Size of map is too small.");
+        }
+        if ((long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Size of map is too big.");
+        }
+        if (jungleHeight < 0 || jungleWidth < 0) {
+            throw new IllegalArgumentException("Size of jungle is too small.");
+        }
+        if (jungleHeight > height || jungleWidth > width) {
+            throw new IllegalArgumentException("Size of jungle is too big.");
+        }
+
+        this.width = width;
+        this.height = height;
+
+        this.jungleWidth = jungleWidth;
+        this.jungleHeight = jungleHeight;
+        this.jungleY = (height / 2) - (jungleHeight / 2);
+        this.jungleX = (width / 2) - (jungleWidth / 2);
+
+        this.chunksWidth = (width + CHUNK_MASK) >>> CHUNK_SHIFT;
+        this.chunks = new Chunk[this.chunksWidth * ((height + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        this.fieldsView = new AbstractList<>() {
+            @Override
+            public Field get(int index) {
+                return peekField(index % ChunkedMap.this.width, index / ChunkedMap.this.width);
+            }
+
+            @Override
+            public int size() {
+                return ChunkedMap.this.width * ChunkedMap.this.height;
+            }
+        };
+
+        this.animals = animals;
+        for (FieldType type : FieldType.values()) {
+            this.occupiedFields.put(type, 0);
+        }
+    }
+
+    /**
+     * Check if coordinates are inside map bounds.
+     */
+    private boolean isInside(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    private boolean isJungle(int x, int y) {
+        return x >= this.jungleX && x < this.jungleX + this.jungleWidth
+                && y >= this.jungleY && y < this.jungleY + this.jungleHeight;
+    }
+
+    @Override
+    public boolean canMoveTo(Vector2D position) {
+        return isInside(position.getX(), position.getY());
+    }
+
+    @Override
+    public long step(int x, int y, int dx, int dy) {
+        x += dx;
+        y += dy;
+        return isInside(x, y) ? Vector2D.pack(x, y) : BLOCKED;
+    }
+
+    @Override
+    public void place(IMapElement element) throws IllegalArgumentException {
+        Field field = fieldAt(element.getPosition());
+
+        if (field != null) {
+            if (element instanceof Plant plant) {
+                if (!field.hasPlant() && !field.hasAnimal()) {
+                    field.setPlant(plant);
+
+                    plants.add(plant);
+                } else {
+                    throw new IllegalArgumentException("Another plant or animal is placed in that position.");
+                }
+
+            } else if (element instanceof Animal animal) {
+                // animal is already stored in animal store since its creation
+                Plant plant = field.removePlant();
+                if (plant != null) {
+                    plants.remove(plant);
+                }
+
+                field.add(animal);
+                animal.addPositionChangedObserver(this);
+            }
+            updateOccupied(field);
+
+        } else {
+            throw new IllegalArgumentException("Element is out of bound.");
+        }
+
+    }
+
+    @Override
+    public void pop(IMapElement element) throws IllegalArgumentException {
+        Field field = fieldAt(element.getPosition());
+
+        if (field != null) {
+            if (element instanceof Plant plant) {
+                field.removePlant();
+                plants.remove(plant);
+
+            } else if (element instanceof Animal animal) {
+                field.remove(animal);
+                animals.remove(animal);
+                animal.removePositionChangedObserver(this);
+            }
+            updateOccupied(field);
+
+        } else {
+            throw new IllegalArgumentException("Element is out of bound.");
+        }
+    }
+
+    /**
+     * Return list of map's fields. Fields are not created when they are read,
+     * empty fields which are not kept by map are returned as new detached fields.
+     */
+    @Override
+    public List<Field> getFields() {
+        return this.fieldsView;
+    }
+
+    /**
+     * Return field at given coordinates to put elements at, its chunk is allocated if needed.
+     * Chunk is released only when the last element placed at it leaves, so fields are read by {@link #getFields()}.
+     */
+    @Override
+    public Field fieldAt(int x, int y) {
+        int index = (y >>> CHUNK_SHIFT) * this.chunksWidth + (x >>> CHUNK_SHIFT);
+        Chunk chunk = this.chunks[index];
+        if (chunk == null) {
+            chunk = new Chunk();
+            this.chunks[index] = chunk;
+        }
+
+        Field field = chunk.fields[cell(x, y)];
+        if (field == null) {
+            field = new Field(typeAt(x, y), new Vector2D(x, y));
+            chunk.fields[cell(x, y)] = field;
+        }
+        return field;
+    }
+
+    @Override
+    public Field fieldAt(Vector2D position) {
+        if (!isInside(position.getX(), position.getY())) {
+            return null;
+        }
+        return fieldAt(position.getX(), position.getY());
+    }
+
+    /**
+     * Return field at given coordinates without allocating it, field which is not kept by map
+     * is returned as a new empty field, changes of such field are not seen by map.
+     */
+    private Field peekField(int x, int y) {
+        Chunk chunk = this.chunks[(y >>> CHUNK_SHIFT) * this.chunksWidth + (x >>> CHUNK_SHIFT)];
+        Field field = chunk != null ? chunk.fields[cell(x, y)] : null;
+        return field != null ? field : new Field(typeAt(x, y), new Vector2D(x, y));
+    }
+
+    /**
+     * Return index of field in its chunk.
+     */
+    private static int cell(int x, int y) {
+        return (y & CHUNK_MASK) << CHUNK_SHIFT | (x & CHUNK_MASK);
+    }
+
+    @Override
+    public FieldType typeAt(int x, int y) {
+        return isJungle(x, y) ? FieldType.JUNGLE : FieldType.STEPPE;
+    }
+
+    @Override
+    public Collection<Animal> getAnimals() {
+        return animals;
+    }
+
+    @Override
+    public AnimalStore getAnimalStore() {
+        return animals;
+    }
+
+    @Override
+    public HashSet<Plant> getPlants() {
+        return plants;
+    }
+
+
+    @Override
+    public Occupants getAnimalsAt(Vector2D position) {
+        return peekField(position.getX(), position.getY()).getAnimals();
+    }
+
+    /**
+     * Update occupancy of field after its content has changed, chunk without elements is released.
+     */
+    private void updateOccupied(Field field) {
+        int x = field.getPosition().getX();
+        int y = field.getPosition().getY();
+        int index = (y >>> CHUNK_SHIFT) * this.chunksWidth + (x >>> CHUNK_SHIFT);
+        Chunk chunk = this.chunks[index];
+
+        long bit = 1L << cell(x, y);
+        boolean occupied = !field.isEmpty();
+        if (occupied == ((chunk.occupied & bit) != 0)) {
+            return;
+        }
+
+        chunk.occupied ^= bit;
+        this.occupiedFields.merge(field.getType(), occupied ? 1 : -1, Integer::sum);
+
+        if (chunk.occupied == 0) {
+            this.chunks[index] = null;
+        }
+    }
+
+    private boolean isOccupied(int x, int y) {
+        Chunk chunk = this.chunks[(y >>> CHUNK_SHIFT) * this.chunksWidth + (x >>> CHUNK_SHIFT)];
+        return chunk != null && (chunk.occupied & (1L << cell(x, y))) != 0;
+    }
+
+    /**
+     * Return count of allocated chunks.
+     */
+    int getAllocatedChunksCount() {
+        int count = 0;
+        for (Chunk chunk : this.chunks) {
+            if (chunk != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return count of fields of given type.
+     */
+    private int area(FieldType type) {
+        int jungleArea = this.jungleWidth * this.jungleHeight;
+        return type == FieldType.JUNGLE ? jungleArea : this.width * this.height - jungleArea;
+    }
+
+    @Override
+    public int getFreeFieldsCount(FieldType type) {
+        return area(type) - this.occupiedFields.get(type);
+    }
+
+    @Override
+    public Field randomFreeField(FieldType type, SplitRandom random) {
+        int free = getFreeFieldsCount(type);
+        if (free == 0) {
+            return null;
+        }
+
+        for (int i = 0; i < SAMPLING_TRIES; i++) {
+            long position = randomField(type, random);
+            int x = Vector2D.unpackX(position);
+            int y = Vector2D.unpackY(position);
+            if (!isOccupied(x, y)) {
+                return peekField(x, y);
+            }
+        }
+        return freeField(type, random.nextInt(free));
+    }
+
+    @Override
+    public Field randomFreeField(SplitRandom random) {
+        int jungle = getFreeFieldsCount(FieldType.JUNGLE);
+        int steppe = getFreeFieldsCount(FieldType.STEPPE);
+
+        int count = jungle + steppe;
+        if (count == 0) {
+            return null;
+        }
+        return randomFreeField(random.nextInt(count) < jungle ? FieldType.JUNGLE : FieldType.STEPPE, random);
+    }
+
+    /**
+     * Return uniformly random position of field of given type, packed by {@link Vector2D#pack(int, int)}.
+     * Type has to have at least one field.
+     */
+    private long randomField(FieldType type, SplitRandom random) {
+        if (type == FieldType.JUNGLE) {
+            return Vector2D.pack(this.jungleX + random.nextInt(this.jungleWidth),
+                    this.jungleY + random.nextInt(this.jungleHeight));
+        }
+
+        // steppe: rows below jungle, rows beside jungle, rows above jungle
+        int index = random.nextInt(area(FieldType.STEPPE));
+        int below = this.jungleY * this.width;
+        if (index < below) {
+            return Vector2D.pack(index % this.width, index / this.width);
+        }
+        index -= below;
+
+        int rowWidth = this.width - this.jungleWidth;
+        int beside = this.jungleHeight * rowWidth;
+        if (index < beside) {
+            int x = index % rowWidth;
+            return Vector2D.pack(x < this.jungleX ? x : x + this.jungleWidth, this.jungleY + index / rowWidth);
+        }
+        index -= beside;
+
+        return Vector2D.pack(index % this.width, this.jungleY + this.jungleHeight + index / this.width);
+    }
+
+    /**
+     * Return free field of given type with given index, counting free fields row by row in every chunk.
+     * Chunks are scanned only if they are allocated, free fields of other chunks are counted from their size.
+     *
+     * @param index Index from 0 to count of free fields of type - 1.
+     */
+    private Field freeField(FieldType type, int index) {
+        for (int chunkIndex = 0; chunkIndex < this.chunks.length; chunkIndex++) {
+            int left = (chunkIndex % this.chunksWidth) << CHUNK_SHIFT;
+            int bottom = (chunkIndex / this.chunksWidth) << CHUNK_SHIFT;
+            int right = Math.min(left + CHUNK_SIZE, this.width);
+            int top = Math.min(bottom + CHUNK_SIZE, this.height);
+
+            int free = 0;
+            for (int y = bottom; y < top; y++) {
+                free += rowFields(type, y, left, right) - rowOccupied(type, chunkIndex, y, left, right);
+            }
+            if (index >= free) {
+                index -= free;
+                continue;
+            }
+
+            for (int y = bottom; y < top; y++) {
+                for (int x = left; x < right; x++) {
+                    if (typeAt(x, y) == type && !isOccupied(x, y) && index-- == 0) {
+                        return peekField(x, y);
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("Count of free fields is inconsistent.");
+    }
+
+    /**
+     * Return count of fields of given type in row y between left (inclusive) and right (exclusive).
+     */
+    private int rowFields(FieldType type, int y, int left, int right) {
+        int jungle = 0;
+        if (y >= this.jungleY && y < this.jungleY + this.jungleHeight) {
+            jungle = Math.max(0, Math.min(right, this.jungleX + this.jungleWidth) - Math.max(left, this.jungleX));
+        }
+        return type == FieldType.JUNGLE ? jungle : right - left - jungle;
+    }
+
+    /**
+     * Return count of occupied fields of given type in row y of chunk between left and right.
+     */
+    private int rowOccupied(FieldType type, int chunkIndex, int y, int left, int right) {
+        Chunk chunk = this.chunks[chunkIndex];
+        if (chunk == null) {
+            return 0;
+        }
+        long row = (chunk.occupied >>> ((y & CHUNK_MASK) << CHUNK_SHIFT)) & ROW_MASK;
+
+        long jungleBits = 0;
+        if (y >= this.jungleY && y < this.jungleY + this.jungleHeight) {
+            int from = Math.max(left, this.jungleX) - left;
+            int to = Math.min(right, this.jungleX + this.jungleWidth) - left;
+            if (to > from) {
+                jungleBits = ((1L << (to - from)) - 1) << from;
+            }
+        }
+        return Long.bitCount(type == FieldType.JUNGLE ? row & jungleBits : row & ~jungleBits);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getJungleWidth() {
+        return jungleWidth;
+    }
+
+    @Override
+    public int getJungleHeight() {
+        return jungleHeight;
+    }
+
+    private int indexOf(Vector2D position) {
+        return position.getY() * this.width + position.getX();
+    }
+
+    /**
+     * Write animals and plants to checkpoint, free fields are not kept in any order.
+     */
+    @Override
+    public void writeTo(CheckpointWriter out) throws IOException {
+        this.animals.writeTo(out);
+
+        out.putInt(this.plants.size());
+        for (Plant plant : this.plants) {
+            out.putInt(indexOf(plant.getPosition()));
+        }
+    }
+
+    @Override
+    public void readFrom(CheckpointReader in, float startEnergy) throws IOException {
+        if (!this.plants.isEmpty() || !this.animals.isEmpty()) {
+            throw new IllegalStateException("Checkpoint can be read only into empty map.");
+        }
+
+        // animals are put directly into fields
+        this.animals.readFrom(in, this, startEnergy);
+        for (Animal animal : this.animals) {
+            animal.addPositionChangedObserver(this);
+            updateOccupied(fieldAt(animal.getX(), animal.getY()));
+        }
+
+        int plantsCount = in.getInt();
+        for (int i = 0; i < plantsCount; i++) {
+            int index = in.getInt();
+            Field field = fieldAt(index % this.width, index / this.width);
+            Plant plant = new Plant(field.getPosition());
+            field.setPlant(plant);
+            this.plants.add(plant);
+            updateOccupied(field);
+        }
+    }
+
+    @Override
+    public void positionChanged(Animal animal, int oldX, int oldY) {
+        Field oldField = fieldAt(oldX, oldY);
+        Field newField = fieldAt(animal.getX(), animal.getY());
+
+        oldField.remove(animal);
+        newField.add(animal);
+
+        // new field is marked first, so chunk left by animal within itself is not released
+        updateOccupied(newField);
+        updateOccupied(oldField);
+    }
+
+
+    @Override
+    public String toString() {
+        return this.mapVisualizer.draw();
+    }
+}
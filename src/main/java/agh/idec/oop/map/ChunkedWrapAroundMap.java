@@ -0,0 +1,26 @@
+package agh.idec.oop.map;
+
+import agh.idec.oop.Vector2D;
+
+public class ChunkedWrapAroundMap extends ChunkedMap {
+    public ChunkedWrapAroundMap(int width, int height, int jungleWidth, int jungleHeight) {
+        super(width, height, jungleWidth, jungleHeight);
+    }
+
+    public ChunkedWrapAroundMap(int width, int height, int jungleWidth, int jungleHeight, long seed) {
+        super(width, height, jungleWidth, jungleHeight, seed);
+    }
+
+    /**
+     * Step and wrap position, as in {@link WrapAroundMap#step(int, int, int, int)}.
+     */
+    @Override
+    public long step(int x, int y, int dx, int dy) {
+        return Vector2D.pack(WrapAroundMap.wrap(x + dx, this.getWidth()), WrapAroundMap.wrap(y + dy, this.getHeight()));
+    }
+
+    @Override
+    public boolean canMoveTo(Vector2D position) {
+        return true;
+    }
+}
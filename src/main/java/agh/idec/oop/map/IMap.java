@@ -2,13 +2,20 @@ package agh.idec.oop.map;
 
 import agh.idec.oop.Vector2D;
 import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
 import agh.idec.oop.element.IMapElement;
+import agh.idec.oop.element.Occupants;
 import agh.idec.oop.element.Plant;
 import agh.idec.oop.field.Field;
+import agh.idec.oop.field.FieldType;
+import agh.idec.oop.utils.CheckpointReader;
+import agh.idec.oop.utils.CheckpointWriter;
+import agh.idec.oop.utils.SplitRandom;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.PriorityQueue;
+import java.util.List;
 
 /**
  * The interface responsible for interacting with the map of World.
@@ -22,6 +29,23 @@ public interface IMap {
      */
     boolean canMoveTo(Vector2D position);
 
+    /**
+     * Value returned by {@link #step(int, int, int, int)} when the element cannot move.
+     */
+    long BLOCKED = Long.MIN_VALUE;
+
+    /**
+     * Compute position of an element after a step, without allocation.
+     * The step is checked and wrapped as {@link #canMoveTo(Vector2D)} requires.
+     *
+     * @param x  Current x coordinate.
+     * @param y  Current y coordinate.
+     * @param dx Step along x axis, -1, 0 or 1.
+     * @param dy Step along y axis, -1, 0 or 1.
+     * @return Position packed by {@link Vector2D#pack(int, int)} or {@link #BLOCKED} if the element cannot move.
+     */
+    long step(int x, int y, int dx, int dy);
+
 
     /**
      * Place an element on the map.
@@ -44,17 +68,25 @@ public interface IMap {
      * Return all animals at a given position.
      *
      * @param position A position on the map where to check existence of animals.
-     * @return Set of animals.
+     * @return Occupants of field at position.
+     */
+    Occupants getAnimalsAt(Vector2D position);
+
+
+    /**
+     * Return animals on map.
+     *
+     * @return Collection of animals backed by map's animal store.
      */
-    PriorityQueue<Animal> getAnimalsAt(Vector2D position);
+    Collection<Animal> getAnimals();
 
 
     /**
-     * Return set of animals on map.
+     * Return store keeping state of all animals created for map.
      *
-     * @return HashSet of animals.
+     * @return Animal store.
      */
-    HashSet<Animal> getAnimals();
+    AnimalStore getAnimalStore();
 
 
     /**
@@ -68,9 +100,70 @@ public interface IMap {
     /**
      * Return list of map's fields.
      *
-     * @return HashMap of key vectors assigned to field.
+     * @return Unmodifiable list of fields ordered row by row (index y * width + x).
      */
-    HashMap<Vector2D, Field> getFields();
+    List<Field> getFields();
+
+
+    /**
+     * Return field at given coordinates.
+     * Coordinates are not checked, they have to be inside map bounds.
+     *
+     * @param x X coordinate of field.
+     * @param y Y coordinate of field.
+     * @return Field at coordinates.
+     */
+    Field fieldAt(int x, int y);
+
+
+    /**
+     * Return field at given position.
+     *
+     * @param position Position of field.
+     * @return Field at position or null if position is out of map bounds.
+     */
+    Field fieldAt(Vector2D position);
+
+
+    /**
+     * Return type of field at given coordinates, field itself is not needed.
+     * Coordinates are not checked, they have to be inside map bounds.
+     *
+     * @param x X coordinate of field.
+     * @param y Y coordinate of field.
+     * @return Type of field.
+     */
+    FieldType typeAt(int x, int y);
+
+
+    /**
+     * Return count of free fields (without animals and plants) of given type.
+     *
+     * @param type Type of fields.
+     * @return Integer value.
+     */
+    int getFreeFieldsCount(FieldType type);
+
+
+    /**
+     * Return random free field (without animals and plants) of given type.
+     * Placing an element on the returned field removes it from free fields,
+     * so consecutive calls sample fields without replacement.
+     *
+     * @param type   Type of field.
+     * @param random Random generator.
+     * @return Free field or null if there are no free fields of given type.
+     */
+    Field randomFreeField(FieldType type, SplitRandom random);
+
+
+    /**
+     * Return random free field (without animals and plants) of any type.
+     *
+     * @param random Random generator.
+     * @return Free field or null if there are no free fields.
+     */
+    Field randomFreeField(SplitRandom random);
 
 
     /**
@@ -86,4 +179,33 @@ public interface IMap {
      * @return Integer value.
      */
     int getHeight();
+
+    /**
+     * Return width of jungle.
+     *
+     * @return Integer value.
+     */
+    int getJungleWidth();
+
+    /**
+     * Return height of jungle.
+     *
+     * @return Integer value.
+     */
+    int getJungleHeight();
+
+    /**
+     * Write animals, plants and order of free fields to checkpoint.
+     *
+     * @param out Checkpoint.
+     */
+    void writeTo(CheckpointWriter out) throws IOException;
+
+    /**
+     * Restore state written by {@link #writeTo(CheckpointWriter)} into a new empty map of the same size.
+     *
+     * @param in          Checkpoint.
+     * @param startEnergy Start energy of animals.
+     */
+    void readFrom(CheckpointReader in, float startEnergy) throws IOException;
 }
@@ -4,4 +4,8 @@ public class NormalMap extends AbstractMap {
     public NormalMap(int width, int height, int jungleWidth, int jungleHeight) {
         super(width, height, jungleWidth, jungleHeight);
     }
+
+    public NormalMap(int width, int height, int jungleWidth, int jungleHeight, long seed) {
+        super(width, height, jungleWidth, jungleHeight, seed);
+    }
 }
@@ -7,6 +7,10 @@ public class WrapAroundMap extends AbstractMap {
         super(width, height, jungleWidth, jungleHeight);
     }
 
+    public WrapAroundMap(int width, int height, int jungleWidth, int jungleHeight, long seed) {
+        super(width, height, jungleWidth, jungleHeight, seed);
+    }
+
     /**
      * Wrap position inside map bound.
      *
@@ -23,6 +27,23 @@ public class WrapAroundMap extends AbstractMap {
         return new Vector2D(x, y);
     }
 
+    /**
+     * Step and wrap position without branches, step has to be at most one field long.
+     */
+    @Override
+    public long step(int x, int y, int dx, int dy) {
+        return Vector2D.pack(wrap(x + dx, this.getWidth()), wrap(y + dy, this.getHeight()));
+    }
+
+    /**
+     * Wrap coordinate from range [-1, size] into [0, size).
+     */
+    static int wrap(int value, int size) {
+        value += size & (value >> 31); // -1 -> size - 1
+        value -= size & ((size - 1 - value) >> 31); // size -> 0
+        return value;
+    }
+
     @Override
     public boolean canMoveTo(Vector2D position) {
         return true;
@@ -0,0 +1,18 @@
+package agh.idec.oop.observables;
+
+import agh.idec.oop.World;
+import agh.idec.oop.utils.DayMetrics;
+
+/**
+ * Observer of time spent in phases of simulated day and events counted during the day.<br>
+ * Metrics are measured only while at least one observer is registered.
+ */
+public interface IDayMetricsObserver {
+    /**
+     * Called after every simulated day.
+     *
+     * @param world   Simulated world.
+     * @param metrics Metrics of the day, the object is reused next day, so it has to be copied to be kept.
+     */
+    void onDayMetrics(World world, DayMetrics metrics);
+}
@@ -1,8 +1,14 @@
 package agh.idec.oop.observables;
 
-import agh.idec.oop.Vector2D;
 import agh.idec.oop.element.Animal;
 
 public interface IPositionChangedObserver {
-    void positionChanged(Animal animal, Vector2D oldPosition);
+    /**
+     * Called after animal moved, new position is already set.
+     *
+     * @param animal Moved animal.
+     * @param oldX   Previous x coordinate of animal.
+     * @param oldY   Previous y coordinate of animal.
+     */
+    void positionChanged(Animal animal, int oldX, int oldY);
 }
@@ -0,0 +1,262 @@
+package agh.idec.oop.utils;
+
+import agh.idec.oop.element.Genome;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static agh.idec.oop.utils.BinaryStatsWriter.*;
+
+/**
+ * Memory mapped reader of statistics file written by {@link BinaryStatsWriter}.<br>
+ * Every value is read directly by its row, so random access and aggregation of ranges
+ * do not parse the file. File is mapped in segments of whole groups, so it can be larger than 2 GB.<br>
+ * File of interrupted run (not closed by writer) has no row count and no dictionary in its header,
+ * its complete groups are read and dominant genotypes are unknown.
+ */
+public class BinaryStatsReader implements Closeable {
+    private static final int GROUPS_PER_SEGMENT = Integer.MAX_VALUE / GROUP_SIZE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+    private final long rows;
+    private final boolean complete;
+    private final Genome[] genotypes;
+
+    /**
+     * Open and map file.
+     *
+     * @param path Path of statistics file.
+     * @throws IOException If file can not be read or is not a statistics file.
+     */
+    public BinaryStatsReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, 0);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("File is not a statistics file: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION || header.getInt() != GROUP_ROWS || header.getInt() != COLUMNS.length) {
+                throw new IOException("Unsupported version of statistics file: " + version);
+            }
+            long rows = header.getLong();
+            long dictionaryOffset = header.getLong();
+            this.complete = dictionaryOffset != 0;
+            this.rows = this.complete ? rows : (this.channel.size() - HEADER_SIZE) / GROUP_SIZE * GROUP_ROWS;
+
+            long groups = (this.rows + GROUP_ROWS - 1) / GROUP_ROWS;
+            int segmentsCount = (int) ((groups + GROUPS_PER_SEGMENT - 1) / GROUPS_PER_SEGMENT);
+            this.segments = new MappedByteBuffer[segmentsCount];
+            for (int i = 0; i < segmentsCount; i++) {
+                long first = (long) i * GROUPS_PER_SEGMENT;
+                long size = Math.min(GROUPS_PER_SEGMENT, groups - first) * GROUP_SIZE;
+                this.segments[i] = this.channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * GROUP_SIZE, size);
+                this.segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+
+            this.genotypes = this.complete ? readDictionary(dictionaryOffset) : new Genome[0];
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    private Genome[] readDictionary(long offset) throws IOException {
+        ByteBuffer count = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(count, offset);
+        ByteBuffer dictionary = ByteBuffer.allocate(count.getInt() * 2 * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(dictionary, offset + Integer.BYTES);
+        Genome[] genotypes = new Genome[dictionary.capacity() / (2 * Long.BYTES)];
+        for (int i = 0; i < genotypes.length; i++) {
+            genotypes[i] = Genome.of(dictionary.getLong(), dictionary.getLong());
+        }
+        return genotypes;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Statistics file is truncated.");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Check if file was closed by writer. Incomplete file has only complete groups of rows and no dominant genotypes.
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * Return count of rows (days) in file.
+     */
+    public long getRowsCount() {
+        return this.rows;
+    }
+
+    private int position(StatsColumn column, long row) {
+        if (row < 0 || row >= this.rows) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of " + this.rows + ".");
+        }
+        long group = row / GROUP_ROWS;
+        long groupInSegment = group % GROUPS_PER_SEGMENT;
+        return (int) (groupInSegment * GROUP_SIZE) + offset(column, (int) (row % GROUP_ROWS));
+    }
+
+    private ByteBuffer segment(long row) {
+        return this.segments[(int) (row / GROUP_ROWS / GROUPS_PER_SEGMENT)];
+    }
+
+    /**
+     * Return value of int column.
+     *
+     * @param column Column with int values.
+     * @param row    Row from 0 to rows count - 1.
+     */
+    public int getInt(StatsColumn column, long row) {
+        return segment(row).getInt(position(column, row));
+    }
+
+    /**
+     * Return value of float column.
+     *
+     * @param column Column with float values.
+     * @param row    Row from 0 to rows count - 1.
+     */
+    public float getFloat(StatsColumn column, long row) {
+        return segment(row).getFloat(position(column, row));
+    }
+
+    /**
+     * Return value of any column as double.
+     */
+    public double getValue(StatsColumn column, long row) {
+        return column.isFloating() ? getFloat(column, row) : getInt(column, row);
+    }
+
+    /**
+     * Return dominant genotype of row.
+     *
+     * @return Genome or null if there were no animals or file is not complete.
+     */
+    public Genome getDominantGenotype(long row) {
+        int id = getInt(StatsColumn.DOMINANT_GENOTYPE, row);
+        return id >= 0 && id < this.genotypes.length ? this.genotypes[id] : null;
+    }
+
+    /**
+     * Return sum of column values in range of rows.
+     *
+     * @param column Summed column.
+     * @param from   First row (inclusive).
+     * @param to     Last row (exclusive).
+     */
+    public double sum(StatsColumn column, long from, long to) {
+        if (from < 0 || to > this.rows || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + ".." + to + " out of " + this.rows + ".");
+        }
+        double sum = 0;
+        long row = from;
+        while (row < to) {
+            // rows of a column are contiguous within group
+            ByteBuffer segment = segment(row);
+            int position = position(column, row);
+            long groupEnd = Math.min(to, (row / GROUP_ROWS + 1) * GROUP_ROWS);
+            for (; row < groupEnd; row++, position += StatsColumn.WIDTH) {
+                sum += column.isFloating() ? segment.getFloat(position) : segment.getInt(position);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Return average of column values in range of rows.
+     *
+     * @param column Averaged column.
+     * @param from   First row (inclusive).
+     * @param to     Last row (exclusive).
+     * @return Average or 0 for empty range.
+     */
+    public double average(StatsColumn column, long from, long to) {
+        return from == to ? 0 : sum(column, from, to) / (to - from);
+    }
+
+    /**
+     * Convert file to csv in layout written by {@link CSVWriter#writeSeries} (without dominant genotype).
+     *
+     * @param csv Path of csv file.
+     */
+    public void toCsv(Path csv) throws IOException {
+        StatsColumn[] columns = {StatsColumn.ANIMALS_COUNT, StatsColumn.PLANTS_COUNT, StatsColumn.AVERAGE_ENERGY,
+                StatsColumn.AVERAGE_LIFE_LENGTH, StatsColumn.AVERAGE_CHILDREN_COUNT};
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            CSVWriter csvWriter = new CSVWriter(writer);
+
+            List<String> header = new ArrayList<>();
+            header.add(StatsColumn.DAY.getHeader());
+            for (StatsColumn column : columns) {
+                header.add(column.getHeader());
+            }
+            csvWriter.writeData(header);
+
+            List<String> data = new ArrayList<>(header.size());
+            for (long row = 0; row < this.rows; row++) {
+                data.clear();
+                data.add(Long.toString(row));
+                for (StatsColumn column : columns) {
+                    data.add(column.isFloating()
+                            ? Float.toString(getFloat(column, row))
+                            : Integer.toString(getInt(column, row)));
+                }
+                csvWriter.writeData(data);
+            }
+
+            List<Number> averages = new ArrayList<>();
+            for (StatsColumn column : columns) {
+                averages.add((float) average(column, 0, this.rows));
+            }
+            csvWriter.writeAverages(averages);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Convert statistics file to csv, ex. {@code stats.bin stats.csv}.
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryStatsReader <statistics file> <csv file>");
+            System.exit(1);
+        }
+        try (BinaryStatsReader reader = new BinaryStatsReader(Path.of(args[0]))) {
+            reader.toCsv(Path.of(args[1]));
+            if (!reader.isComplete()) {
+                System.out.println("File was not closed, only complete groups of rows are converted, without dominant genotypes.");
+            }
+            System.out.println("Converted " + reader.getRowsCount() + " rows to " + args[1]);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
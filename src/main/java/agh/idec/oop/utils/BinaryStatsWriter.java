@@ -0,0 +1,202 @@
+package agh.idec.oop.utils;
+
+import agh.idec.oop.element.Genome;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Writer of binary columnar file of daily statistics.<br>
+ * Layout (little endian):
+ * <ul>
+ *     <li>header of {@value #HEADER_SIZE} bytes: magic, version, rows per group, count of columns,
+ *     count of rows, offset of genotype dictionary,</li>
+ *     <li>groups of {@link #GROUP_ROWS} rows, in every group columns of {@link StatsColumn} are stored one after another
+ *     as arrays of fixed width values (the last group is padded),</li>
+ *     <li>dictionary of dominant genotypes: count, then two longs of {@link Genome} for every id.</li>
+ * </ul>
+ * Dominant genotype column holds id from the dictionary or -1 if there were no animals.<br>
+ * Header with offset 0 of dictionary is written when file is created and completed when it is closed,
+ * so file of interrupted run is recognized and its complete groups can still be read.
+ * Thanks to fixed widths every value is read directly by its row, see {@link BinaryStatsReader}.
+ */
+public class BinaryStatsWriter implements Closeable {
+    static final int MAGIC = 0x54535645; // "EVST"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int GROUP_ROWS = 4096;
+
+    static final StatsColumn[] COLUMNS = StatsColumn.values();
+    static final int GROUP_SIZE = GROUP_ROWS * COLUMNS.length * StatsColumn.WIDTH;
+
+    private final FileChannel channel;
+    private final ByteBuffer group = ByteBuffer.allocateDirect(GROUP_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    private final HashMap<Genome, Integer> genotypeIds = new HashMap<>();
+    private final ArrayList<Genome> genotypes = new ArrayList<>();
+
+    private long rows = 0;
+    private int groupRows = 0;
+    private boolean closed = false;
+
+    /**
+     * Create (or truncate) file.
+     *
+     * @param path Path of statistics file.
+     */
+    public BinaryStatsWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            writeHeader(0, 0);
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Write header at the beginning of file, position of channel is left after header.
+     *
+     * @param dictionaryOffset Offset of dictionary, 0 if file is not complete.
+     */
+    private void writeHeader(long rows, long dictionaryOffset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(GROUP_ROWS);
+        header.putInt(COLUMNS.length);
+        header.putLong(rows);
+        header.putLong(dictionaryOffset);
+        header.flip();
+        this.channel.position(0);
+        writeFully(header);
+    }
+
+    /**
+     * Append statistics collected by logger.
+     *
+     * @param day    Day of statistics.
+     * @param logger Logger after {@link WorldInformationLogger#log()}.
+     */
+    public void append(int day, WorldInformationLogger logger) throws IOException {
+        append(day, logger.getAnimalsCount(), logger.getPlantsCount(), logger.getAverageEnergy(),
+                logger.getAverageAnimalsLifeLength(), logger.getAverageChildrenCount(), logger.getDominantGenome());
+    }
+
+    /**
+     * Append statistics of one day.
+     *
+     * @param dominant Dominant genotype or null if there are no animals.
+     */
+    public void append(int day, int animalsCount, int plantsCount, float averageEnergy, float averageLifeLength,
+                       float averageChildrenCount, Genome dominant) throws IOException {
+        if (this.closed) {
+            throw new IllegalStateException("Stats file is closed.");
+        }
+
+        int row = this.groupRows;
+        putInt(StatsColumn.DAY, row, day);
+        putInt(StatsColumn.ANIMALS_COUNT, row, animalsCount);
+        putInt(StatsColumn.PLANTS_COUNT, row, plantsCount);
+        putFloat(StatsColumn.AVERAGE_ENERGY, row, averageEnergy);
+        putFloat(StatsColumn.AVERAGE_LIFE_LENGTH, row, averageLifeLength);
+        putFloat(StatsColumn.AVERAGE_CHILDREN_COUNT, row, averageChildrenCount);
+        putInt(StatsColumn.DOMINANT_GENOTYPE, row, genotypeId(dominant));
+
+        this.rows++;
+        if (++this.groupRows == GROUP_ROWS) {
+            writeGroup();
+        }
+    }
+
+    private int genotypeId(Genome genome) {
+        if (genome == null) {
+            return -1;
+        }
+        Integer id = this.genotypeIds.get(genome);
+        if (id == null) {
+            id = this.genotypes.size();
+            this.genotypeIds.put(genome, id);
+            this.genotypes.add(genome);
+        }
+        return id;
+    }
+
+    static int offset(StatsColumn column, int row) {
+        return (column.ordinal() * GROUP_ROWS + row) * StatsColumn.WIDTH;
+    }
+
+    private void putInt(StatsColumn column, int row, int value) {
+        this.group.putInt(offset(column, row), value);
+    }
+
+    private void putFloat(StatsColumn column, int row, float value) {
+        this.group.putFloat(offset(column, row), value);
+    }
+
+    private void writeGroup() throws IOException {
+        this.group.clear();
+        while (this.group.hasRemaining()) {
+            this.channel.write(this.group);
+        }
+        this.group.clear();
+        this.groupRows = 0;
+    }
+
+    /**
+     * Return count of appended rows.
+     */
+    public long getRowsCount() {
+        return this.rows;
+    }
+
+    /**
+     * Write the last group, dictionary and header, then close file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+
+        try (this.channel) {
+            if (this.groupRows > 0) {
+                // clear values of previous group from padding
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    for (int row = this.groupRows; row < GROUP_ROWS; row++) {
+                        putInt(COLUMNS[i], row, 0);
+                    }
+                }
+                writeGroup();
+            }
+
+            long dictionaryOffset = this.channel.position();
+            ByteBuffer dictionary = ByteBuffer.allocate(Integer.BYTES + this.genotypes.size() * 2 * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            dictionary.putInt(this.genotypes.size());
+            for (Genome genome : this.genotypes) {
+                dictionary.putLong(genome.getLow());
+                dictionary.putLong(genome.getHigh());
+            }
+            dictionary.flip();
+            writeFully(dictionary);
+
+            writeHeader(this.rows, dictionaryOffset);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            this.channel.write(buffer);
+        }
+    }
+}
@@ -1,18 +1,27 @@
 package agh.idec.oop.utils;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
 public class CSVWriter {
     File file;
-    FileWriter writer;
+    Writer writer;
 
     public CSVWriter(File file) throws IOException {
         this.file = file;
-        this.writer = new FileWriter(file);
+        this.writer = new BufferedWriter(new FileWriter(file));
+    }
+
+    /**
+     * @param writer Writer of csv data, it should be buffered.
+     */
+    public CSVWriter(Writer writer) {
+        this.writer = writer;
     }
 
     /**
@@ -21,12 +30,13 @@ public class CSVWriter {
      * @param data List of values.
      */
     public void writeData(List<String> data) throws IOException {
-        int i = 0;
-        for (; i < data.size() - 1; i++) {
-            this.writer.write(data.get(i) + ",");
+        for (int i = 0; i < data.size(); i++) {
+            if (i > 0) {
+                this.writer.write(',');
+            }
+            this.writer.write(data.get(i));
         }
-        this.writer.write(data.get(i));
-        this.writer.write("\n");
+        this.writer.write('\n');
     }
 
     /**
@@ -57,9 +67,36 @@ public class CSVWriter {
             for (Number number : list) {
                 sum += number.floatValue();
             }
-            this.writer.write("," + sum / list.size());
+            this.writer.write(',');
+            this.writer.write(Float.toString(sum / list.size()));
+        }
+
+        this.writer.close();
+    }
+
+    /**
+     * Write averages line, the last line of series file.
+     *
+     * @param averages Averages of columns (without day column).
+     */
+    public void writeAverages(List<Number> averages) throws IOException {
+        for (Number average : averages) {
+            this.writer.write(',');
+            this.writer.write(average.toString());
         }
+    }
+
+    /**
+     * Flush written data to file.
+     */
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
 
+    /**
+     * Flush and close file.
+     */
+    public void close() throws IOException {
         this.writer.close();
     }
 }
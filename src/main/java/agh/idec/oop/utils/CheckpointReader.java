@@ -0,0 +1,146 @@
+package agh.idec.oop.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static agh.idec.oop.utils.CheckpointWriter.BUFFER_SIZE;
+import static agh.idec.oop.utils.CheckpointWriter.MAGIC;
+import static agh.idec.oop.utils.CheckpointWriter.VERSION;
+
+/**
+ * Buffered reader of binary checkpoint file written by {@link CheckpointWriter}.
+ * Values have to be read in the same order as they were written.
+ */
+public class CheckpointReader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Open checkpoint file and check its header.
+     *
+     * @param path Path of checkpoint file.
+     * @throws IOException If file can not be read or is not a checkpoint.
+     */
+    public CheckpointReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer.limit(0);
+        try {
+            if (getInt() != MAGIC) {
+                throw new IOException("File is not a checkpoint: " + path);
+            }
+            int version = getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of checkpoint: " + version);
+            }
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Make sure that at least given count of bytes is available in buffer.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (this.buffer.remaining() >= bytes) {
+            return;
+        }
+        this.buffer.compact();
+        while (this.buffer.position() < bytes) {
+            if (this.channel.read(this.buffer) < 0) {
+                throw new IOException("Checkpoint is truncated.");
+            }
+        }
+        this.buffer.flip();
+    }
+
+    public boolean getBoolean() throws IOException {
+        return getByte() != 0;
+    }
+
+    public byte getByte() throws IOException {
+        ensure(Byte.BYTES);
+        return this.buffer.get();
+    }
+
+    public int getInt() throws IOException {
+        ensure(Integer.BYTES);
+        return this.buffer.getInt();
+    }
+
+    public long getLong() throws IOException {
+        ensure(Long.BYTES);
+        return this.buffer.getLong();
+    }
+
+    public float getFloat() throws IOException {
+        ensure(Float.BYTES);
+        return this.buffer.getFloat();
+    }
+
+    public double getDouble() throws IOException {
+        ensure(Double.BYTES);
+        return this.buffer.getDouble();
+    }
+
+    /**
+     * Read count values into the beginning of array.
+     */
+    public void getBytes(byte[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Byte.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining());
+            this.buffer.get(values, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Read count values into the beginning of array.
+     */
+    public void getInts(int[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Integer.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining() / Integer.BYTES);
+            this.buffer.asIntBuffer().get(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Integer.BYTES);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Read count values into the beginning of array.
+     */
+    public void getFloats(float[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Float.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining() / Float.BYTES);
+            this.buffer.asFloatBuffer().get(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Float.BYTES);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Read count values into the beginning of array.
+     */
+    public void getLongs(long[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Long.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining() / Long.BYTES);
+            this.buffer.asLongBuffer().get(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Long.BYTES);
+            offset += chunk;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,142 @@
+package agh.idec.oop.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered writer of binary checkpoint file, see {@link CheckpointReader}.<br>
+ * Values are written through a direct buffer into a file channel, columns of animals
+ * are written as whole primitive arrays.
+ */
+public class CheckpointWriter implements Closeable {
+    static final int MAGIC = 0x4b435645; // "EVCK"
+    static final int VERSION = 1;
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Create (or truncate) checkpoint file and write its header.
+     *
+     * @param path Path of checkpoint file.
+     */
+    public CheckpointWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        putInt(MAGIC);
+        putInt(VERSION);
+    }
+
+    /**
+     * Make sure that at least given count of bytes fits into buffer.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+    public void putBoolean(boolean value) throws IOException {
+        putByte((byte) (value ? 1 : 0));
+    }
+
+    public void putByte(byte value) throws IOException {
+        ensure(Byte.BYTES);
+        this.buffer.put(value);
+    }
+
+    public void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        this.buffer.putInt(value);
+    }
+
+    public void putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        this.buffer.putLong(value);
+    }
+
+    public void putFloat(float value) throws IOException {
+        ensure(Float.BYTES);
+        this.buffer.putFloat(value);
+    }
+
+    public void putDouble(double value) throws IOException {
+        ensure(Double.BYTES);
+        this.buffer.putDouble(value);
+    }
+
+    /**
+     * Write first count values of array.
+     */
+    public void putBytes(byte[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Byte.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining());
+            this.buffer.put(values, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Write first count values of array.
+     */
+    public void putInts(int[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Integer.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining() / Integer.BYTES);
+            this.buffer.asIntBuffer().put(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Integer.BYTES);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Write first count values of array.
+     */
+    public void putFloats(float[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Float.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining() / Float.BYTES);
+            this.buffer.asFloatBuffer().put(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Float.BYTES);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Write first count values of array.
+     */
+    public void putLongs(long[] values, int count) throws IOException {
+        for (int offset = 0; offset < count; ) {
+            ensure(Long.BYTES);
+            int chunk = Math.min(count - offset, this.buffer.remaining() / Long.BYTES);
+            this.buffer.asLongBuffer().put(values, offset, chunk);
+            this.buffer.position(this.buffer.position() + chunk * Long.BYTES);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Write buffered data and close file.
+     */
+    @Override
+    public void close() throws IOException {
+        try (this.channel) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package agh.idec.oop.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Time and allocated memory of phases of a simulated day and counts of events which occurred during the day.<br>
+ * Allocated memory is counted for the simulating thread only (parallel planning of moves is not included),
+ * and only if allocation tracking is enabled and supported by JVM.
+ */
+public class DayMetrics {
+    /**
+     * Phases of simulated day, in order of execution.
+     */
+    public enum Phase {
+        LOGGING,
+        MAGIC_DAY,
+        DECISIONS,
+        FEEDING,
+        BREEDING,
+        PLANT_GROWTH,
+        ENERGY_DRAIN,
+        DEATH_REMOVAL,
+        OBSERVERS,
+        SNAPSHOT
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private final long[] nanos = new long[PHASES.length];
+    private final long[] allocatedBytes = new long[PHASES.length];
+
+    private boolean allocationTracking = false;
+    private long lastNanos;
+    private long lastAllocatedBytes;
+
+    private int day;
+    private int moves;
+    private int births;
+    private int deaths;
+    private int plantsEaten;
+
+    private static com.sun.management.ThreadMXBean threads() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported()) {
+            return threads;
+        }
+        return null;
+    }
+
+    /**
+     * Check if JVM can count memory allocated by a thread.
+     *
+     * @return True if allocated memory can be tracked.
+     */
+    public static boolean isAllocationTrackingSupported() {
+        return THREADS != null;
+    }
+
+    /**
+     * Enable or disable counting of memory allocated in phases.
+     * Counting is ignored if it is not supported by JVM.
+     *
+     * @param allocationTracking True to count allocated memory.
+     */
+    public void setAllocationTracking(boolean allocationTracking) {
+        this.allocationTracking = allocationTracking && isAllocationTrackingSupported();
+        if (this.allocationTracking && !THREADS.isThreadAllocatedMemoryEnabled()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    public boolean isAllocationTracking() {
+        return this.allocationTracking;
+    }
+
+    /**
+     * Clear metrics and start measuring of given day.
+     *
+     * @param day Simulated day.
+     */
+    public void begin(int day) {
+        Arrays.fill(this.nanos, 0);
+        Arrays.fill(this.allocatedBytes, 0);
+        this.day = day;
+        this.moves = 0;
+        this.births = 0;
+        this.deaths = 0;
+        this.plantsEaten = 0;
+
+        this.lastAllocatedBytes = allocatedBytes();
+        this.lastNanos = System.nanoTime();
+    }
+
+    /**
+     * Assign time (and memory) since previous lap or {@link #begin(int)} to given phase.
+     * Phase can be measured a few times a day, values are summed.
+     *
+     * @param phase Finished phase.
+     */
+    public void lap(Phase phase) {
+        long now = System.nanoTime();
+        this.nanos[phase.ordinal()] += now - this.lastNanos;
+
+        if (this.allocationTracking) {
+            long allocated = allocatedBytes();
+            this.allocatedBytes[phase.ordinal()] += allocated - this.lastAllocatedBytes;
+            this.lastAllocatedBytes = allocated;
+        }
+        this.lastNanos = System.nanoTime(); // do not count time of measuring allocation
+    }
+
+    private long allocatedBytes() {
+        if (!this.allocationTracking) {
+            return 0;
+        }
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public void addMoves(int moves) {
+        this.moves += moves;
+    }
+
+    public void addBirths(int births) {
+        this.births += births;
+    }
+
+    public void addDeaths(int deaths) {
+        this.deaths += deaths;
+    }
+
+    public void addPlantsEaten(int plantsEaten) {
+        this.plantsEaten += plantsEaten;
+    }
+
+    /**
+     * Return measured day.
+     */
+    public int getDay() {
+        return this.day;
+    }
+
+    /**
+     * Return wall time of phase.
+     *
+     * @param phase Phase of day.
+     * @return Time in nanoseconds.
+     */
+    public long getNanos(Phase phase) {
+        return this.nanos[phase.ordinal()];
+    }
+
+    /**
+     * Return wall time of whole day.
+     *
+     * @return Time in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return Arrays.stream(this.nanos).sum();
+    }
+
+    /**
+     * Return memory allocated by simulating thread in phase.
+     *
+     * @param phase Phase of day.
+     * @return Allocated bytes or 0 if allocation tracking is disabled.
+     */
+    public long getAllocatedBytes(Phase phase) {
+        return this.allocatedBytes[phase.ordinal()];
+    }
+
+    /**
+     * Return memory allocated by simulating thread during whole day.
+     *
+     * @return Allocated bytes or 0 if allocation tracking is disabled.
+     */
+    public long getTotalAllocatedBytes() {
+        return Arrays.stream(this.allocatedBytes).sum();
+    }
+
+    /**
+     * Return count of animals which changed position.
+     */
+    public int getMoves() {
+        return this.moves;
+    }
+
+    public int getBirths() {
+        return this.births;
+    }
+
+    public int getDeaths() {
+        return this.deaths;
+    }
+
+    public int getPlantsEaten() {
+        return this.plantsEaten;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Day ").append(this.day)
+                .append(": moves=").append(this.moves)
+                .append(", births=").append(this.births)
+                .append(", deaths=").append(this.deaths)
+                .append(", plantsEaten=").append(this.plantsEaten);
+        for (Phase phase : PHASES) {
+            builder.append(", ").append(phase).append('=').append(getNanos(phase) / 1000).append("us");
+            if (this.allocationTracking) {
+                builder.append('/').append(getAllocatedBytes(phase)).append('B');
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,314 @@
+package agh.idec.oop.utils;
+
+import agh.idec.oop.Vector2D;
+import agh.idec.oop.World;
+import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
+import agh.idec.oop.element.Genome;
+import agh.idec.oop.element.Plant;
+import agh.idec.oop.field.Field;
+import agh.idec.oop.map.IMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static agh.idec.oop.utils.EventJournalWriter.*;
+
+/**
+ * Replayer of journal written by {@link EventJournalWriter} (see {@link World#startJournal(Path)}).<br>
+ * World is loaded from checkpoint saved next to journal and recorded events are applied to its map,
+ * so animals keep their slots, energies and identifiers exactly as in recorded run.
+ * No decisions are made and no random numbers are drawn, so a day is replayed much faster than it was simulated.
+ * Offsets of records are indexed when journal is opened, going back in time loads checkpoint again.
+ */
+public class EventJournalReplayer implements Closeable {
+    private final Path checkpoint;
+    private final FileChannel channel;
+
+    private final int firstDay;
+    private final int width;
+    private final float startEnergy;
+    private final float moveEnergy;
+    private final float plantEnergy;
+
+    // offsets[i] is offset of record of day firstDay + i
+    private long[] offsets = new long[1024];
+    private int days = 0;
+    private long end;
+
+    private ByteBuffer record = ByteBuffer.allocate(1 << 16);
+
+    private World world;
+    private int day;
+
+    /**
+     * Open journal, index its records and load state of its first day.
+     *
+     * @param path Path of journal file, checkpoint has to be next to it.
+     * @throws IOException If journal or checkpoint can not be read.
+     */
+    public EventJournalReplayer(Path path) throws IOException {
+        this.checkpoint = checkpointOf(path);
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(header, 0);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("File is not an event journal: " + path);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version of event journal: " + version);
+            }
+            this.firstDay = header.getInt();
+            this.width = header.getInt();
+            header.getInt(); // height
+            this.startEnergy = header.getFloat();
+            this.moveEnergy = header.getFloat();
+            this.plantEnergy = header.getFloat();
+            long end = header.getLong();
+
+            index(end);
+            load();
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Return path of checkpoint with state of the first day of journal.
+     *
+     * @param journal Path of journal file.
+     */
+    public static Path checkpointOf(Path journal) {
+        return journal.resolveSibling(journal.getFileName() + ".ck");
+    }
+
+    /**
+     * Find offsets of all complete records, journal of interrupted run ends with zeros or with a partial record.
+     *
+     * @param end Offset of the end of the last record stored in header, 0 if journal was not closed.
+     */
+    private void index(long end) throws IOException {
+        long size = end > 0 ? Math.min(end, this.channel.size()) : this.channel.size();
+        long offset = HEADER_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(5);
+        while (offset < size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), size - offset));
+            this.channel.read(buffer, offset);
+            buffer.flip();
+            int length = getVarint(buffer);
+            int lengthSize = buffer.position();
+            if (length <= 0 || offset + lengthSize + length > size) {
+                break;
+            }
+
+            if (this.days == this.offsets.length) {
+                this.offsets = Arrays.copyOf(this.offsets, this.days * 2);
+            }
+            this.offsets[this.days++] = offset;
+            offset += lengthSize + length;
+        }
+        this.end = offset;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (this.channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Event journal is truncated.");
+            }
+        }
+        buffer.flip();
+    }
+
+    private void load() throws IOException {
+        this.world = World.load(this.checkpoint);
+        this.day = this.firstDay;
+        this.world.getLogger().log();
+    }
+
+    /**
+     * Return replayed world, its map and logger show state of current day.
+     * Replayed world should not be run, and it is replaced by a new one when replayer goes back in time.
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Return current day, state of map is the state at the beginning of this day.
+     */
+    public int getDay() {
+        return this.day;
+    }
+
+    /**
+     * Return the first day of journal.
+     */
+    public int getFirstDay() {
+        return this.firstDay;
+    }
+
+    /**
+     * Return the last day which can be replayed (day following the last record).
+     */
+    public int getLastDay() {
+        return this.firstDay + this.days;
+    }
+
+    /**
+     * Replay events of current day.
+     *
+     * @return False if there are no more recorded days.
+     */
+    public boolean nextDay() throws IOException {
+        if (this.day >= getLastDay()) {
+            return false;
+        }
+        replay(this.day - this.firstDay);
+        this.day++;
+        this.world.getMap().getAnimalStore().setDay(this.day);
+        this.world.getLogger().log();
+        return true;
+    }
+
+    /**
+     * Rebuild state at the beginning of given day.
+     *
+     * @param day Day from the first to the last day of journal.
+     * @throws IllegalArgumentException If day is not recorded in journal.
+     */
+    public void seek(int day) throws IOException {
+        if (day < this.firstDay || day > getLastDay()) {
+            throw new IllegalArgumentException("Day " + day + " is not recorded in journal.");
+        }
+        if (day < this.day) {
+            load();
+        }
+        while (this.day < day) {
+            nextDay();
+        }
+    }
+
+    private void replay(int index) throws IOException {
+        long offset = this.offsets[index];
+        long end = index + 1 < this.days ? this.offsets[index + 1] : this.end;
+        int size = (int) (end - offset);
+        if (this.record.capacity() < size) {
+            this.record = ByteBuffer.allocate(Math.max(size, this.record.capacity() * 2));
+        }
+        this.record.clear();
+        this.record.limit(size);
+        readFully(this.record, offset);
+
+        ByteBuffer in = this.record;
+        getVarint(in); // length
+        int recordDay = getVarint(in);
+        if (recordDay != this.day) {
+            throw new IOException("Event journal is corrupted, expected day " + this.day + " got " + recordDay + ".");
+        }
+
+        IMap map = this.world.getMap();
+        AnimalStore store = map.getAnimalStore();
+
+        // magic day clones
+        int count = getVarint(in);
+        getVarint(in);
+        for (int i = 0; i < count; i++) {
+            Genome genome = store.getGenome(getVarint(in));
+            Field field = fieldAt(map, getVarint(in));
+            map.place(new Animal(map, field.getPosition(), genome, this.startEnergy));
+        }
+
+        // moves
+        count = getVarint(in);
+        getVarint(in);
+        int slot = -1;
+        for (int i = 0; i < count; i++) {
+            int move = getVarint(in);
+            slot += move / 9 + 1;
+            int direction = move % 9;
+            Animal animal = store.get(slot);
+            long position = map.step(animal.getX(), animal.getY(), direction / 3 - 1, direction % 3 - 1);
+            animal.moveTo(Vector2D.unpackX(position), Vector2D.unpackY(position));
+        }
+
+        // feedings
+        count = getVarint(in);
+        getVarint(in);
+        for (int i = 0; i < count; i++) {
+            Field field = fieldAt(map, getVarint(in));
+            int eaters = getVarint(in);
+            for (int j = 0; j < eaters; j++) {
+                store.get(getVarint(in)).addEnergy(this.plantEnergy / eaters);
+            }
+            map.pop(field.getPlant());
+        }
+
+        // births
+        count = getVarint(in);
+        getVarint(in);
+        for (int i = 0; i < count; i++) {
+            Animal parent = store.get(getVarint(in));
+            Animal partner = store.get(getVarint(in));
+            Genome genome = Genome.of(getVarlong(in), getVarlong(in));
+            map.place(parent.giveBirth(partner, genome));
+        }
+
+        // plants
+        count = getVarint(in);
+        getVarint(in);
+        for (int i = 0; i < count; i++) {
+            map.place(new Plant(fieldAt(map, getVarint(in)).getPosition()));
+        }
+
+        store.drainEnergy(this.moveEnergy);
+
+        // deaths
+        count = getVarint(in);
+        getVarint(in);
+        slot = 0;
+        for (int i = 0; i < count; i++) {
+            int delta = getVarint(in);
+            slot += (delta >>> 1) ^ -(delta & 1);
+            Animal animal = store.get(slot);
+            this.world.getLogger().endLife(animal);
+            map.pop(animal);
+        }
+    }
+
+    private Field fieldAt(IMap map, int index) {
+        return map.getFields().get(index);
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        return (int) getVarlong(in);
+    }
+
+    private static long getVarlong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                break;
+            }
+            shift += 7;
+        }
+        return value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
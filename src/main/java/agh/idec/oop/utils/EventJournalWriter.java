@@ -0,0 +1,306 @@
+package agh.idec.oop.utils;
+
+import agh.idec.oop.element.Genome;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Append-only binary journal of events of simulated days, read by {@link EventJournalReplayer}.<br>
+ * Events of a day are collected in sections (clones of magic day, moves, feedings, births, plants, deaths),
+ * and the whole day is appended as one record when the day ends. Numbers are written as varints,
+ * slots of moving animals are delta coded and a move is a single step direction, so a move usually takes one byte.
+ * Animals are identified by their slots in {@link agh.idec.oop.element.AnimalStore},
+ * which the replayer reproduces exactly, and fields by index {@code y * width + x}.<br>
+ * File is written through memory mapped regions, mapped one after another as the journal grows,
+ * each region twice as large as the previous one up to {@link #REGION_SIZE}.
+ * Mapped file can not be truncated on every system, so file is not cut at the end of the last record,
+ * offset of this end is written to header when journal is closed (it stays 0 if run was interrupted).
+ * <pre>
+ * header: magic "EVJR", version, first day, width, height, start energy, move energy, plant energy, end
+ * record: length, day, then for every section: count of events, length in bytes, events
+ * </pre>
+ */
+public class EventJournalWriter implements Closeable {
+    static final int MAGIC = 0x524a5645; // "EVJR"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 40;
+    static final int END_OFFSET = 32;
+    static final int FIRST_REGION_SIZE = 1 << 16;
+    static final int REGION_SIZE = 1 << 24;
+
+    // sections of record, in order in which events are applied
+    static final int CLONES = 0;
+    static final int MOVES = 1;
+    static final int FEEDINGS = 2;
+    static final int BIRTHS = 3;
+    static final int PLANTS = 4;
+    static final int DEATHS = 5;
+    static final int SECTIONS = 6;
+
+    /**
+     * Varint encoded events of one section of current day.
+     */
+    private static final class Section {
+        private byte[] data = new byte[256];
+        private int size = 0;
+        private int count = 0;
+
+        private void putVarint(int value) {
+            putVarlong(value & 0xffffffffL);
+        }
+
+        private void putVarlong(long value) {
+            if (this.size + 10 > this.data.length) {
+                this.data = Arrays.copyOf(this.data, this.data.length * 2);
+            }
+            while ((value & ~0x7fL) != 0) {
+                this.data[this.size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            this.data[this.size++] = (byte) value;
+        }
+
+        private void clear() {
+            this.size = 0;
+            this.count = 0;
+        }
+    }
+
+    private final FileChannel channel;
+    private final int width;
+    private final Section[] sections = new Section[SECTIONS];
+
+    private MappedByteBuffer region;
+    private long regionStart = 0;
+
+    private int lastMoveSlot = -1;
+    private int lastDeathSlot = 0;
+
+    /**
+     * Create (or truncate) journal file and write its header.
+     *
+     * @param path     Path of journal file.
+     * @param firstDay Day of the first record, the same as day of world's state saved next to journal.
+     */
+    public EventJournalWriter(Path path, int firstDay, int width, int height,
+                              float startEnergy, float moveEnergy, float plantEnergy) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.width = width;
+        for (int i = 0; i < SECTIONS; i++) {
+            this.sections[i] = new Section();
+        }
+
+        try {
+            this.region = map(0, FIRST_REGION_SIZE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(firstDay).putInt(width).putInt(height)
+                    .putFloat(startEnergy).putFloat(moveEnergy).putFloat(plantEnergy).putLong(0);
+            this.region.put(header.array());
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer map(long start, int size) throws IOException {
+        this.regionStart = start;
+        return this.channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+    }
+
+    /**
+     * Write full region to disk and map the following one.
+     */
+    private void nextRegion() throws IOException {
+        this.region.force();
+        int size = this.region.capacity();
+        this.region = map(this.regionStart + size, Math.min(size * 2, REGION_SIZE));
+    }
+
+    private int index(int x, int y) {
+        return y * this.width + x;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Record animal cloned on magic day.
+     *
+     * @param sourceSlot Slot of cloned animal.
+     */
+    public void clone(int sourceSlot, int x, int y) {
+        Section section = this.sections[CLONES];
+        section.putVarint(sourceSlot);
+        section.putVarint(index(x, y));
+        section.count++;
+    }
+
+    /**
+     * Record move of animal. Moves have to be recorded in order of slots.
+     *
+     * @param slot Slot of moved animal.
+     * @param dx   Change of x coordinate, wrapped change is normalized to a single step.
+     * @param dy   Change of y coordinate, wrapped change is normalized to a single step.
+     */
+    public void move(int slot, int dx, int dy) {
+        dx = dx > 1 ? -1 : (dx < -1 ? 1 : dx);
+        dy = dy > 1 ? -1 : (dy < -1 ? 1 : dy);
+
+        Section section = this.sections[MOVES];
+        section.putVarint((slot - this.lastMoveSlot - 1) * 9 + (dx + 1) * 3 + (dy + 1));
+        section.count++;
+        this.lastMoveSlot = slot;
+    }
+
+    /**
+     * Record plant eaten by animals, it has to be followed by {@link #eater(int)} for every animal.
+     *
+     * @param eaters Count of animals sharing the plant.
+     */
+    public void feeding(int x, int y, int eaters) {
+        Section section = this.sections[FEEDINGS];
+        section.putVarint(index(x, y));
+        section.putVarint(eaters);
+        section.count++;
+    }
+
+    /**
+     * Record animal sharing plant of last {@link #feeding(int, int, int)}.
+     *
+     * @param slot Slot of animal.
+     */
+    public void eater(int slot) {
+        this.sections[FEEDINGS].putVarint(slot);
+    }
+
+    /**
+     * Record birth, newborn is placed at position of the first parent.
+     *
+     * @param parentSlot  Slot of parent at which position newborn was born.
+     * @param partnerSlot Slot of second parent.
+     * @param genome      Genome of newborn.
+     */
+    public void birth(int parentSlot, int partnerSlot, Genome genome) {
+        Section section = this.sections[BIRTHS];
+        section.putVarint(parentSlot);
+        section.putVarint(partnerSlot);
+        section.putVarlong(genome.getLow());
+        section.putVarlong(genome.getHigh());
+        section.count++;
+    }
+
+    /**
+     * Record plant grown at given position.
+     */
+    public void plant(int x, int y) {
+        Section section = this.sections[PLANTS];
+        section.putVarint(index(x, y));
+        section.count++;
+    }
+
+    /**
+     * Record removal of dead animal.
+     *
+     * @param slot Slot of animal at moment of removal.
+     */
+    public void death(int slot) {
+        Section section = this.sections[DEATHS];
+        section.putVarint(zigzag(slot - this.lastDeathSlot));
+        section.count++;
+        this.lastDeathSlot = slot;
+    }
+
+    /**
+     * Append events recorded since previous day as record of given day.
+     *
+     * @param day Day which events were recorded.
+     * @throws UncheckedIOException If file could not be extended.
+     */
+    public void endDay(int day) {
+        try {
+            int length = varintSize(day);
+            for (Section section : this.sections) {
+                length += varintSize(section.count) + varintSize(section.size) + section.size;
+            }
+
+            putVarint(length);
+            putVarint(day);
+            for (Section section : this.sections) {
+                putVarint(section.count);
+                putVarint(section.size);
+                put(section.data, section.size);
+                section.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.lastMoveSlot = -1;
+        this.lastDeathSlot = 0;
+    }
+
+    private static int varintSize(int value) {
+        return Math.max(1, (38 - Integer.numberOfLeadingZeros(value)) / 7);
+    }
+
+    private void putVarint(int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            putByte((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        putByte((byte) value);
+    }
+
+    private void putByte(byte value) throws IOException {
+        if (!this.region.hasRemaining()) {
+            nextRegion();
+        }
+        this.region.put(value);
+    }
+
+    private void put(byte[] data, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (!this.region.hasRemaining()) {
+                nextRegion();
+            }
+            int chunk = Math.min(length - offset, this.region.remaining());
+            this.region.put(data, offset, chunk);
+            offset += chunk;
+        }
+    }
+
+    /**
+     * Write mapped regions to disk and store offset of the end of the last record in header.
+     * Events of not ended day are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.region == null) {
+            return;
+        }
+        try {
+            long end = this.regionStart + this.region.position();
+            this.region.force();
+            this.region = null;
+
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, end);
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer, END_OFFSET + buffer.position());
+            }
+            this.channel.force(false);
+        } finally {
+            this.channel.close();
+        }
+    }
+}
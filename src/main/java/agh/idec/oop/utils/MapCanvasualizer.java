@@ -1,25 +1,68 @@
 package agh.idec.oop.utils;
 
 import agh.idec.oop.Vector2D;
+import agh.idec.oop.WorldSnapshot;
 import agh.idec.oop.element.Animal;
-import agh.idec.oop.field.Field;
 import agh.idec.oop.map.IMap;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 
-import java.util.HashMap;
-import java.util.Objects;
-import java.util.PriorityQueue;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
 
 /**
- * Converts map into 2D canvas with colorized elements.
+ * Converts {@link WorldSnapshot} of map into 2D canvas with colorized elements.<br>
+ * Only fields changed since previous update are redrawn. Fields with animals or plants in current snapshot
+ * and fields drawn with animals or plants in previous update are compared with drawn content,
+ * so emptied fields are found without scanning the whole map.
+ * Shade of animal is quantized, so small changes of energy do not cause redrawing.
+ * Whole map is redrawn only when size of canvas changes.<br>
+ * In {@link Mode#PIXELS} mode every field is one pixel of an image kept as an {@code int[]} buffer of ARGB colors,
+ * changed rows of the buffer are copied to the image with one call and the image is scaled to canvas
+ * without smoothing, so large maps are drawn at constant cost of a few calls per frame.
  */
 public class MapCanvasualizer {
 
+    /**
+     * How fields are drawn.
+     */
+    public enum Mode {
+        /**
+         * Field is a rectangle with an oval of plant or animal.
+         */
+        SHAPES,
+        /**
+         * Field is a pixel of image scaled to canvas.
+         */
+        PIXELS;
+
+        /**
+         * Maps with any side longer than this are drawn as pixels by default.
+         */
+        private static final int PIXELS_THRESHOLD = 200;
+
+        /**
+         * Return mode suitable for size of given map.
+         */
+        public static Mode forMap(IMap map) {
+            return map.getWidth() > PIXELS_THRESHOLD || map.getHeight() > PIXELS_THRESHOLD ? PIXELS : SHAPES;
+        }
+    }
+
+    /**
+     * Maximal length of side of drawn map, in pixel mode the whole map is a single image.
+     */
+    public static final int MAX_SIDE = 4096;
+
+    /**
+     * Maximal count of fields of drawn map, state of every field is kept.
+     */
+    public static final int MAX_FIELDS = 1 << 22;
+
     private static final Color DOMINANT_COLOR = Color.hsb(285, 1, 1);
 
     private static final Color ENERGY_COLOR = Color.hsb(30, 1, 1);
@@ -28,6 +71,32 @@ public class MapCanvasualizer {
     private static final Color STEPPE_COLOR = Color.rgb(157, 182, 155);
     private static final Color JUNGLE_COLOR = Color.rgb(113, 145, 108);
 
+    /**
+     * Count of shades of animals, from no energy to the maximal energy on map.
+     */
+    private static final int SHADES = 32;
+    private static final Color[] ENERGY_COLORS = new Color[SHADES];
+
+    // the same colors packed as ARGB for pixel mode
+    private static final int[] ENERGY_ARGB = new int[SHADES];
+    private static final int PLANT_ARGB = argb(PLANT_COLOR);
+    private static final int STEPPE_ARGB = argb(STEPPE_COLOR);
+    private static final int JUNGLE_ARGB = argb(JUNGLE_COLOR);
+
+    static {
+        for (int i = 0; i < SHADES; i++) {
+            ENERGY_COLORS[i] = Color.hsb(ENERGY_COLOR.getHue(), ENERGY_COLOR.getSaturation() * i / (SHADES - 1),
+                    ENERGY_COLOR.getBrightness());
+            ENERGY_ARGB[i] = argb(ENERGY_COLORS[i]);
+        }
+    }
+
+    // content of drawn fields, animal of shade i is ANIMAL + i
+    private static final byte STALE = -1;
+    private static final byte EMPTY = 0;
+    private static final byte PLANT = 1;
+    private static final byte ANIMAL = 2;
+
     private final IMap map;
     private final Canvas canvas;
 
@@ -37,77 +106,290 @@ public class MapCanvasualizer {
     private double height;
     private double width;
 
+    private final byte[] drawn;
+
+    // content and the highest energy of animals of fields, valid for fields with stamp of current update
+    private final byte[] contents;
+    private final float[] topEnergies;
+    private final int[] stamps;
+    private int stamp = 0;
+
+    // fields checked in current update
+    private int[] candidates = new int[64];
+    private int candidatesCount = 0;
+
+    // fields drawn with animal or plant
+    private int[] occupied = new int[64];
+    private int occupiedCount = 0;
+
+    private double drawnWidth = -1;
+    private double drawnHeight = -1;
+
+    private final Mode mode;
+
+    // pixel mode: map image with the top row of map in the first row of buffer
+    private final int[] pixels;
+    private final WritableImage image;
+
+    /**
+     * Create canvasualizer drawing in mode chosen by {@link Mode#forMap(IMap)}.
+     */
     public MapCanvasualizer(IMap map, Canvas canvas) {
+        this(map, canvas, Mode.forMap(map));
+    }
+
+    public MapCanvasualizer(IMap map, Canvas canvas, Mode mode) {
+        if (!canDraw(map.getWidth(), map.getHeight())) {
+            throw new IllegalArgumentException("Map is too big to be drawn.");
+        }
         this.map = map;
         this.canvas = canvas;
+        this.mode = mode;
 
         this.top_limit = new Vector2D(map.getWidth() - 1, map.getHeight() - 1);
         this.bottom_limit = new Vector2D(0, 0);
+
+        int fields = map.getWidth() * map.getHeight();
+        this.drawn = new byte[fields];
+        this.contents = new byte[fields];
+        this.topEnergies = new float[fields];
+        this.stamps = new int[fields];
+
+        if (mode == Mode.PIXELS) {
+            this.pixels = new int[fields];
+            this.image = new WritableImage(map.getWidth(), map.getHeight());
+        } else {
+            this.pixels = null;
+            this.image = null;
+        }
+    }
+
+    /**
+     * Check if map of given size can be drawn, see {@link #MAX_SIDE} and {@link #MAX_FIELDS}.
+     */
+    public static boolean canDraw(int width, int height) {
+        return width <= MAX_SIDE && height <= MAX_SIDE && (long) width * height <= MAX_FIELDS;
+    }
+
+    /**
+     * Return mode in which fields are drawn.
+     */
+    public Mode getMode() {
+        return this.mode;
     }
 
     /**
-     * Updates canvas with values from map.
+     * Updates canvas with values from snapshot of map.
+     *
+     * @param snapshot Acquired snapshot of world which map is drawn.
      */
-    public void updateCanvas() {
+    public void updateCanvas(WorldSnapshot snapshot) {
         GraphicsContext gc = this.canvas.getGraphicsContext2D();
 
         this.width = this.canvas.getWidth() / map.getWidth();
         this.height = this.canvas.getHeight() / map.getHeight();
 
-        float maxEnergy = getMaxEnergy();
+        this.stamp++;
+        this.candidatesCount = 0;
+
+        // fields with animals and the highest energy on them
+        float maxEnergy = snapshot.getMaxEnergy();
+        for (int i = 0; i < snapshot.getAnimalsCount(); i++) {
+            int index = snapshot.getAnimalField(i);
+            float energy = snapshot.getEnergy(i);
+            if (addCandidate(index, ANIMAL)) {
+                this.topEnergies[index] = energy;
+            } else if (energy > this.topEnergies[index]) {
+                this.topEnergies[index] = energy;
+            }
+        }
 
-        HashMap<Vector2D, Field> fields = this.map.getFields();
+        // animal is drawn over plant
+        for (int i = 0; i < snapshot.getPlantsCount(); i++) {
+            addCandidate(snapshot.getPlantField(i), PLANT);
+        }
 
-        fields.values().forEach(field -> {
-            Vector2D map_pos = field.getPosition();
-            Vector2D pos = mapMapPosToCanvasPos(map_pos);
+        // image of pixel mode is only scaled to new size of canvas
+        boolean resized = this.canvas.getWidth() != this.drawnWidth || this.canvas.getHeight() != this.drawnHeight;
+        if (resized && (this.mode == Mode.SHAPES || this.drawnWidth < 0)) {
+            this.drawnWidth = this.canvas.getWidth();
+            this.drawnHeight = this.canvas.getHeight();
+            Arrays.fill(this.drawn, STALE);
+            for (int index = 0; index < this.drawn.length; index++) {
+                addCandidate(index, EMPTY);
+            }
+        } else {
+            // fields which were left or eaten
+            for (int i = 0; i < this.occupiedCount; i++) {
+                addCandidate(this.occupied[i], EMPTY);
+            }
+        }
 
+        // rows of image changed in pixel mode
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = -1;
 
-            switch (field.getType()) {
-                case STEPPE -> gc.setFill(STEPPE_COLOR);
-                case JUNGLE -> gc.setFill(JUNGLE_COLOR);
+        this.occupiedCount = 0;
+        for (int i = 0; i < this.candidatesCount; i++) {
+            int index = this.candidates[i];
+            byte content = this.contents[index];
+            if (content == ANIMAL) {
+                content = (byte) (ANIMAL + shade(this.topEnergies[index], maxEnergy));
+            }
+            if (content != EMPTY) {
+                addOccupied(index);
             }
-            gc.fillRect(pos.getX() * width, pos.getY() * height, width, height);
 
+            if (content != this.drawn[index]) {
+                this.drawn[index] = content;
+                if (this.mode == Mode.PIXELS) {
+                    int row = this.map.getHeight() - 1 - index / this.map.getWidth();
+                    this.pixels[row * this.map.getWidth() + index % this.map.getWidth()] = pixel(index, content);
+                    firstRow = Math.min(firstRow, row);
+                    lastRow = Math.max(lastRow, row);
+                } else {
+                    drawField(gc, index, content);
+                }
+            }
+        }
 
-            if (field.hasPlant()) {
-                gc.setFill(PLANT_COLOR);
-                gc.fillOval(pos.getX() * width + width / 4, pos.getY() * height + height / 4, width / 2, height / 2);
-            } else if (field.hasAnimal()) {
-                gc.setFill(getEnergyColor(Objects.requireNonNull(field.getAnimals().peek()), maxEnergy));
-                gc.fillOval(pos.getX() * width + width / 4, pos.getY() * height + height / 4, width / 2, height / 2);
+        if (this.mode == Mode.PIXELS) {
+            int mapWidth = this.map.getWidth();
+            if (lastRow >= firstRow) {
+                this.image.getPixelWriter().setPixels(0, firstRow, mapWidth, lastRow - firstRow + 1,
+                        PixelFormat.getIntArgbInstance(), this.pixels, firstRow * mapWidth, mapWidth);
             }
-        });
+            // nearest neighbour scaling keeps fields sharp
+            gc.setImageSmoothing(false);
+            gc.drawImage(this.image, 0, 0, this.canvas.getWidth(), this.canvas.getHeight());
+        }
+    }
+
+    /**
+     * Return ARGB color of field with given content.
+     */
+    private int pixel(int index, byte content) {
+        if (content == PLANT) {
+            return PLANT_ARGB;
+        } else if (content >= ANIMAL) {
+            return ENERGY_ARGB[content - ANIMAL];
+        }
+        return switch (this.map.typeAt(index % this.map.getWidth(), index / this.map.getWidth())) {
+            case STEPPE -> STEPPE_ARGB;
+            case JUNGLE -> JUNGLE_ARGB;
+        };
     }
 
+    private static int argb(Color color) {
+        return (int) Math.round(color.getOpacity() * 255) << 24
+                | (int) Math.round(color.getRed() * 255) << 16
+                | (int) Math.round(color.getGreen() * 255) << 8
+                | (int) Math.round(color.getBlue() * 255);
+    }
 
     /**
-     * Return animal at clicked position of canvas.
+     * Add field to fields checked in current update, if it was not added yet.
      *
-     * @param event MouseEvent of clicked canvas.
+     * @param content Content of field, kept if field was already added.
+     * @return True if field was added.
+     */
+    private boolean addCandidate(int index, byte content) {
+        if (this.stamps[index] == this.stamp) {
+            return false;
+        }
+        this.stamps[index] = this.stamp;
+        this.contents[index] = content;
+        if (this.candidatesCount == this.candidates.length) {
+            this.candidates = Arrays.copyOf(this.candidates, this.candidatesCount * 2);
+        }
+        this.candidates[this.candidatesCount++] = index;
+        return true;
+    }
+
+    private void addOccupied(int index) {
+        if (this.occupiedCount == this.occupied.length) {
+            this.occupied = Arrays.copyOf(this.occupied, this.occupiedCount * 2);
+        }
+        this.occupied[this.occupiedCount++] = index;
+    }
+
+    /**
+     * Return shade of animal with given energy, from 0 to {@link #SHADES} - 1.
+     */
+    private static int shade(float energy, float maxEnergy) {
+        if (maxEnergy <= 0 || energy <= 0) {
+            return 0;
+        }
+        return Math.min(SHADES - 1, (int) (energy / maxEnergy * (SHADES - 1) + 0.5f));
+    }
+
+    private void drawField(GraphicsContext gc, int index, byte content) {
+        int x = index % this.map.getWidth();
+        int y = index / this.map.getWidth();
+        Vector2D pos = mapMapPosToCanvasPos(new Vector2D(x, y));
+
+        // fields are not read, so chunks of sparse map are not allocated
+        switch (this.map.typeAt(x, y)) {
+            case STEPPE -> gc.setFill(STEPPE_COLOR);
+            case JUNGLE -> gc.setFill(JUNGLE_COLOR);
+        }
+        gc.fillRect(pos.getX() * width, pos.getY() * height, width, height);
+
+        if (content == PLANT) {
+            gc.setFill(PLANT_COLOR);
+            gc.fillOval(pos.getX() * width + width / 4, pos.getY() * height + height / 4, width / 2, height / 2);
+        } else if (content >= ANIMAL) {
+            gc.setFill(ENERGY_COLORS[content - ANIMAL]);
+            gc.fillOval(pos.getX() * width + width / 4, pos.getY() * height + height / 4, width / 2, height / 2);
+        }
+    }
+
+
+    /**
+     * Return animal with the highest energy at clicked position of canvas.
+     *
+     * @param event    MouseEvent of clicked canvas.
+     * @param snapshot Acquired snapshot of world which map is drawn.
      * @return Animal at position or null if it does not exist.
      */
-    public Animal getClickedAnimal(MouseEvent event) {
+    public Animal getClickedAnimal(MouseEvent event, WorldSnapshot snapshot) {
         Vector2D position = new Vector2D((int) (event.getX() / this.width), (int) (event.getY() / this.height));
         Vector2D mappedPosition = mapCanvasPosToMapPos(position);
-        PriorityQueue<Animal> animals = this.map.getAnimalsAt(mappedPosition);
-
-        return animals.peek();
+        int index = mappedPosition.getY() * this.map.getWidth() + mappedPosition.getX();
+
+        Animal animal = null;
+        float energy = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < snapshot.getAnimalsCount(); i++) {
+            if (snapshot.getAnimalField(i) == index && snapshot.getEnergy(i) > energy) {
+                animal = snapshot.getAnimal(i);
+                energy = snapshot.getEnergy(i);
+            }
+        }
+        return animal;
     }
 
     /**
-     * Fills position on canvas as dominant animal.
+     * Fills positions of animals with dominant genome on canvas.
      *
-     * @param position Position to fill.
+     * @param snapshot Acquired snapshot of world which map is drawn.
      */
-    public void fillDominant(Vector2D position) {
-        position = mapCanvasPosToMapPos(position);
+    public void fillDominants(WorldSnapshot snapshot) {
         GraphicsContext gc = this.canvas.getGraphicsContext2D();
         this.width = this.canvas.getWidth() / map.getWidth();
         this.height = this.canvas.getHeight() / map.getHeight();
 
         gc.setFill(DOMINANT_COLOR);
-        gc.fillOval(position.getX() * width + width / 4, position.getY() * height + height / 4, width / 2, height / 2);
+        for (int i = 0; i < snapshot.getDominantCount(); i++) {
+            int index = snapshot.getDominantField(i);
+            Vector2D position = mapMapPosToCanvasPos(new Vector2D(index % this.map.getWidth(), index / this.map.getWidth()));
+            gc.fillOval(position.getX() * width + width / 4, position.getY() * height + height / 4, width / 2, height / 2);
+
+            // field is drawn again on next update
+            if (this.drawn[index] == EMPTY) {
+                addOccupied(index);
+            }
+            this.drawn[index] = STALE;
+        }
     }
 
     /**
@@ -135,34 +417,4 @@ public class MapCanvasualizer {
 
         return position;
     }
-
-    /**
-     * Get maximum energy of all animals in map.
-     *
-     * @return Float number of energy.
-     */
-    private float getMaxEnergy() {
-        float max = 0;
-        for (Animal animal : this.map.getAnimals()) {
-            if (animal.getEnergy() > max) {
-                max = animal.getEnergy();
-            }
-        }
-        return max;
-    }
-
-    /**
-     * Return color based on maximum energy of animals.
-     *
-     * @param energy    Energy of animal we want to color.
-     * @param maxEnergy Maximum energy of all animals.
-     * @return Color of energy.
-     */
-    private Color getEnergyColor(Animal energy, float maxEnergy) {
-        if (energy.getEnergy() < 0) {
-            System.out.println(this.map.getAnimalsAt(energy.getPosition()).stream().map(Animal::getEnergy).collect(Collectors.toList()));
-            System.out.println(energy.getPosition());
-        }
-        return Color.hsb(ENERGY_COLOR.getHue(), (energy.getEnergy() * ENERGY_COLOR.getSaturation()) / maxEnergy, ENERGY_COLOR.getBrightness());
-    }
 }
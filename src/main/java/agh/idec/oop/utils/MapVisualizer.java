@@ -1,13 +1,10 @@
 package agh.idec.oop.utils;
 
-import agh.idec.oop.Vector2D;
-import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.Occupants;
 import agh.idec.oop.field.Field;
 import agh.idec.oop.field.FieldType;
 import agh.idec.oop.map.IMap;
 
-import java.util.PriorityQueue;
-
 
 /**
  * Convert a map into a string representation.<br>
@@ -52,9 +49,8 @@ public class MapVisualizer {
 
     private String drawObject(int x, int y) {
         String result;
-        Vector2D position = new Vector2D(x, y);
-        Field field = this.map.getFields().get(position);
-        PriorityQueue<Animal> animals = field.getAnimals();
+        Field field = this.map.getFields().get(y * this.map.getWidth() + x); // read without creating field
+        Occupants animals = field.getAnimals();
 
         if (field.hasPlant()) {
             result = "\u001b[35m" + field.getPlant() + "\u001b[0m";
@@ -88,7 +84,7 @@ public class MapVisualizer {
 
     private String drawField(int x, int y) {
         StringBuilder builder = new StringBuilder();
-        if (this.map.getFields().get(new Vector2D(x, y)).getType() == FieldType.JUNGLE) {
+        if (this.map.typeAt(x, y) == FieldType.JUNGLE) {
             builder.append("\u001b[42m");
         }
         return builder.toString();
@@ -0,0 +1,308 @@
+package agh.idec.oop.utils;
+
+import java.util.Arrays;
+
+/**
+ * Whole history of statistics series kept in primitive arrays, decimated for drawing at chart.<br>
+ * Values are stored in chunks, so growing history is never copied. For every series a pyramid of levels
+ * is kept, level {@code k} stores minimum and maximum of each block of {@code 16 * 2^k} days.
+ * {@link #decimate} selects points by largest-triangle-three-buckets algorithm, but for long ranges
+ * it runs over extremes of blocks of the coarsest fitting level instead of all days,
+ * so cost of decimation does not depend on length of range.
+ */
+public class SeriesHistory {
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Blocks of the first level have 2^BASE_SHIFT days.
+     */
+    private static final int BASE_SHIFT = 4;
+
+    private static final int MIN = 1;
+    private static final int MAX = 2;
+
+    /**
+     * Extremes of blocks of one size, for every series.
+     */
+    private static final class Level {
+        private final int shift;
+        private float[][] min;
+        private float[][] max;
+        private int[][] minAt;
+        private int[][] maxAt;
+
+        private Level(int shift, int series) {
+            this.shift = shift;
+            this.min = new float[series][16];
+            this.max = new float[series][16];
+            this.minAt = new int[series][16];
+            this.maxAt = new int[series][16];
+        }
+
+        /**
+         * Update extremes of block containing given index.
+         *
+         * @param candidate {@link #MIN} if value can be a new minimum, {@link #MAX} if it can be a new maximum.
+         * @return Extremes updated by value. Value which is not an extreme of block is not an extreme of larger block.
+         */
+        private int add(int series, int index, float value, int candidate) {
+            int block = index >>> this.shift;
+            if (block == this.min[series].length) {
+                int capacity = block * 2;
+                this.min[series] = Arrays.copyOf(this.min[series], capacity);
+                this.max[series] = Arrays.copyOf(this.max[series], capacity);
+                this.minAt[series] = Arrays.copyOf(this.minAt[series], capacity);
+                this.maxAt[series] = Arrays.copyOf(this.maxAt[series], capacity);
+            }
+
+            boolean first = (index & ((1 << this.shift) - 1)) == 0;
+            int updated = 0;
+            if (first || ((candidate & MIN) != 0 && value < this.min[series][block])) {
+                this.min[series][block] = value;
+                this.minAt[series][block] = index;
+                updated |= MIN;
+            }
+            if (first || ((candidate & MAX) != 0 && value > this.max[series][block])) {
+                this.max[series][block] = value;
+                this.maxAt[series][block] = index;
+                updated |= MAX;
+            }
+            return updated;
+        }
+    }
+
+    private final int seriesCount;
+    private int[][] days = new int[1][];
+    private float[][][] values;
+    private int size = 0;
+
+    private Level[] levels = new Level[0];
+
+    // candidate points of current decimation
+    private int[] candidates = new int[1024];
+
+    /**
+     * @param seriesCount Count of series.
+     */
+    public SeriesHistory(int seriesCount) {
+        this.seriesCount = seriesCount;
+        this.values = new float[1][seriesCount][];
+    }
+
+    public int getSeriesCount() {
+        return this.seriesCount;
+    }
+
+    /**
+     * Return count of stored days.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Add values of series at next day, days have to be added in increasing order.
+     *
+     * @param day    Day of values.
+     * @param values Value of every series.
+     */
+    public void add(int day, float... values) {
+        if (values.length != this.seriesCount) {
+            throw new IllegalArgumentException("Expected " + this.seriesCount + " values, got " + values.length + ".");
+        }
+        int chunk = this.size >>> CHUNK_SHIFT;
+        if (chunk == this.days.length) {
+            this.days = Arrays.copyOf(this.days, chunk * 2);
+            this.values = Arrays.copyOf(this.values, chunk * 2);
+        }
+        if (this.days[chunk] == null) {
+            this.days[chunk] = new int[CHUNK_SIZE];
+            this.values[chunk] = new float[this.seriesCount][CHUNK_SIZE];
+        }
+
+        int index = this.size++;
+        this.days[chunk][index & CHUNK_MASK] = day;
+        for (int series = 0; series < this.seriesCount; series++) {
+            this.values[chunk][series][index & CHUNK_MASK] = values[series];
+        }
+
+        // level is added when history has more than one of its blocks
+        if (index >>> (BASE_SHIFT + this.levels.length) > 0) {
+            addLevel();
+        }
+        for (int series = 0; series < this.seriesCount; series++) {
+            int candidate = MIN | MAX;
+            for (int level = 0; level < this.levels.length && candidate != 0; level++) {
+                candidate = this.levels[level].add(series, index, values[series], candidate);
+            }
+        }
+    }
+
+    private void addLevel() {
+        Level level = new Level(BASE_SHIFT + this.levels.length, this.seriesCount);
+        for (int index = 0; index < this.size - 1; index++) {
+            for (int series = 0; series < this.seriesCount; series++) {
+                level.add(series, index, getValue(series, index), MIN | MAX);
+            }
+        }
+        this.levels = Arrays.copyOf(this.levels, this.levels.length + 1);
+        this.levels[this.levels.length - 1] = level;
+    }
+
+    /**
+     * Return day at given index.
+     */
+    public int getDay(int index) {
+        return this.days[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+    }
+
+    /**
+     * Return value of series at given index.
+     */
+    public float getValue(int series, int index) {
+        return this.values[index >>> CHUNK_SHIFT][series][index & CHUNK_MASK];
+    }
+
+    /**
+     * Return index of the first stored day not earlier than given day.
+     */
+    public int indexOf(int day) {
+        int low = 0;
+        int high = this.size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getDay(middle) < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Select points of series that represent its shape in given range of indexes.
+     * The first and the last point of range are always selected.
+     *
+     * @param series    Index of series.
+     * @param from      Index of the first day of range.
+     * @param to        Index following the last day of range.
+     * @param threshold Maximal count of selected points, at least 3.
+     * @param selected  Array for indexes of selected points, of length at least threshold.
+     * @return Count of selected points.
+     */
+    public int decimate(int series, int from, int to, int threshold, int[] selected) {
+        int count = to - from;
+        if (count <= threshold) {
+            for (int i = 0; i < count; i++) {
+                selected[i] = from + i;
+            }
+            return count;
+        }
+
+        int candidatesCount = candidates(series, from, to, threshold);
+        if (candidatesCount <= threshold) {
+            System.arraycopy(this.candidates, 0, selected, 0, candidatesCount);
+            return candidatesCount;
+        }
+        return largestTriangles(series, candidatesCount, threshold, selected);
+    }
+
+    /**
+     * Collect points from which decimated points are selected: all points of short range,
+     * or extremes of blocks of the coarsest level with at least as many blocks in range as threshold.
+     *
+     * @return Count of candidates.
+     */
+    private int candidates(int series, int from, int to, int threshold) {
+        Level level = null;
+        for (int i = this.levels.length - 1; i >= 0 && level == null; i--) {
+            if ((to - from) >>> this.levels[i].shift >= threshold) {
+                level = this.levels[i];
+            }
+        }
+
+        int capacity = level == null ? to - from : 2 * (((to - 1) >>> level.shift) - (from >>> level.shift) + 1) + 2;
+        if (this.candidates.length < capacity) {
+            this.candidates = new int[Math.max(capacity, this.candidates.length * 2)];
+        }
+
+        int count = 0;
+        if (level == null) {
+            for (int index = from; index < to; index++) {
+                this.candidates[count++] = index;
+            }
+            return count;
+        }
+
+        this.candidates[count++] = from;
+        for (int block = from >>> level.shift; block <= (to - 1) >>> level.shift; block++) {
+            int first = Math.min(level.minAt[series][block], level.maxAt[series][block]);
+            int second = Math.max(level.minAt[series][block], level.maxAt[series][block]);
+            // edges of range are kept anyway, extremes of partial blocks may lie outside of range
+            if (first > from && first < to - 1) {
+                this.candidates[count++] = first;
+            }
+            if (second > from && second < to - 1 && second != first) {
+                this.candidates[count++] = second;
+            }
+        }
+        this.candidates[count++] = to - 1;
+        return count;
+    }
+
+    /**
+     * Largest-triangle-three-buckets: candidates between the first and the last one are split into buckets,
+     * from every bucket the point forming the largest triangle with previously selected point
+     * and average of the next bucket is selected.
+     */
+    private int largestTriangles(int series, int count, int threshold, int[] selected) {
+        int[] points = this.candidates;
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+
+        int selectedCount = 0;
+        int previous = points[0];
+        selected[selectedCount++] = previous;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // average of the next bucket, the last point for the last bucket
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, count - 1);
+            double averageX = 0;
+            double averageY = 0;
+            if (nextStart >= nextEnd) {
+                nextStart = count - 1;
+                nextEnd = count;
+            }
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += getDay(points[i]);
+                averageY += getValue(series, points[i]);
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            double previousX = getDay(previous);
+            double previousY = getValue(series, previous);
+            double largestArea = -1;
+            int chosen = points[start];
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((previousX - averageX) * (getValue(series, points[i]) - previousY)
+                        - (previousX - getDay(points[i])) * (averageY - previousY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = points[i];
+                }
+            }
+            selected[selectedCount++] = chosen;
+            previous = chosen;
+        }
+
+        selected[selectedCount++] = points[count - 1];
+        return selectedCount;
+    }
+}
@@ -0,0 +1,94 @@
+package agh.idec.oop.utils;
+
+/**
+ * Fast splittable pseudo random generator based on SplitMix64.<br>
+ * The whole state is a single long, so streams can also be kept in primitive arrays
+ * and advanced with static {@link #advance(long)} and {@link #mix(long)}.
+ */
+public class SplitRandom {
+    private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long state;
+
+    public SplitRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * Return next pseudo random long.
+     */
+    public long nextLong() {
+        this.state = advance(this.state);
+        return mix(this.state);
+    }
+
+    /**
+     * Return next pseudo random int from 0 (inclusive) to bound (exclusive).
+     *
+     * @param bound Positive upper bound.
+     */
+    public int nextInt(int bound) {
+        return bounded(nextLong(), bound);
+    }
+
+    /**
+     * Return next pseudo random boolean.
+     */
+    public boolean nextBoolean() {
+        return nextLong() < 0;
+    }
+
+    /**
+     * Return seed of a new independent stream. Advances this generator.
+     */
+    public long splitSeed() {
+        return nextLong();
+    }
+
+    /**
+     * Create new independent generator. Advances this generator.
+     */
+    public SplitRandom split() {
+        return new SplitRandom(splitSeed());
+    }
+
+    /**
+     * Return current state of generator.
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * Set current state of generator.
+     */
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    /**
+     * Advance raw state of a stream.
+     *
+     * @param state Current state.
+     * @return Next state, pass it to {@link #mix(long)} to get a random value.
+     */
+    public static long advance(long state) {
+        return state + GAMMA;
+    }
+
+    /**
+     * Mix state into pseudo random long.
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Map pseudo random long to int from 0 (inclusive) to bound (exclusive).
+     */
+    public static int bounded(long random, int bound) {
+        return (int) (((random >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,42 @@
+package agh.idec.oop.utils;
+
+/**
+ * Columns of binary statistics file, see {@link BinaryStatsWriter}.<br>
+ * Every column has fixed width of 4 bytes and is either int or float.
+ */
+public enum StatsColumn {
+    DAY("day", false),
+    ANIMALS_COUNT("animals_count", false),
+    PLANTS_COUNT("plants_count", false),
+    AVERAGE_ENERGY("average_energy", true),
+    AVERAGE_LIFE_LENGTH("average_life_length", true),
+    AVERAGE_CHILDREN_COUNT("average_children_count", true),
+    DOMINANT_GENOTYPE("dominant_genotype", false);
+
+    /**
+     * Width of every column in bytes.
+     */
+    public static final int WIDTH = Integer.BYTES;
+
+    private final String header;
+    private final boolean floating;
+
+    StatsColumn(String header, boolean floating) {
+        this.header = header;
+        this.floating = floating;
+    }
+
+    /**
+     * Return name of column used in csv header.
+     */
+    public String getHeader() {
+        return this.header;
+    }
+
+    /**
+     * Check if column holds float values, otherwise it holds int values.
+     */
+    public boolean isFloating() {
+        return this.floating;
+    }
+}
@@ -0,0 +1,303 @@
+package agh.idec.oop.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streaming csv file of daily statistics.<br>
+ * Rows are queued by {@link #append(int, Number...)} and written through a buffered writer by a background thread,
+ * which flushes the file periodically. Queue is bounded, so a simulation producing rows faster than they are written
+ * waits for the writer. If writing fails, the writer stops and the sink rejects further rows and exports. Averages of columns are kept as running sums,
+ * so the averages line (the same as in {@link CSVWriter#writeSeries}) is written without keeping history in memory.
+ * Files with names ending with {@code .gz} are gzipped.
+ */
+public class StatsSink implements Closeable {
+    private static final long DEFAULT_FLUSH_INTERVAL = 1000;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int QUEUE_CAPACITY = 1 << 14;
+
+    private static final Object CLOSE = new Object();
+
+    /**
+     * Statistics of one day.
+     */
+    private static final class Row {
+        private final int day;
+        private final Number[] values;
+
+        private Row(int day, Number[] values) {
+            this.day = day;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Request to copy rows written so far to another file.
+     */
+    private static final class Export {
+        private final Path target;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private Export(Path target) {
+            this.target = target;
+        }
+    }
+
+    private final Path path;
+    private final int columns;
+    private final long flushInterval;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+
+    // used only by background thread
+    private final CSVWriter csvWriter;
+    private final double[] sums;
+    private volatile long rows = 0;
+
+    private volatile IOException failure = null;
+    private volatile boolean closed = false;
+    // set when background thread ends, queued items are not processed anymore
+    private volatile boolean stopped = false;
+
+    /**
+     * Create file and write header.
+     *
+     * @param path   Path of csv file, gzipped if name ends with .gz.
+     * @param header Names of columns, the first one is day.
+     */
+    public StatsSink(Path path, List<String> header) throws IOException {
+        this(path, header, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Create file and write header.
+     *
+     * @param path          Path of csv file, gzipped if name ends with .gz.
+     * @param header        Names of columns, the first one is day.
+     * @param flushInterval Maximal time in milliseconds after which appended rows are flushed to file.
+     */
+    public StatsSink(Path path, List<String> header, long flushInterval) throws IOException {
+        this.path = path;
+        this.columns = header.size() - 1;
+        this.flushInterval = flushInterval;
+        this.sums = new double[this.columns];
+
+        this.csvWriter = new CSVWriter(open(path));
+        this.csvWriter.writeData(header);
+
+        this.thread = new Thread(this::writeLoop, "stats-sink-" + path.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private static Writer open(Path path) throws IOException {
+        OutputStream stream = Files.newOutputStream(path);
+        if (path.getFileName().toString().endsWith(".gz")) {
+            stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+        } else {
+            stream = new BufferedOutputStream(stream, BUFFER_SIZE);
+        }
+        return new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Queue row of statistics, it is written in background. Waits if queue is full.
+     *
+     * @param day    Day of statistics.
+     * @param values Values of columns (without day column).
+     * @throws IllegalArgumentException If count of values does not match header.
+     * @throws IllegalStateException    If sink was closed or thread was interrupted while waiting.
+     * @throws UncheckedIOException     If writing of previous rows failed.
+     */
+    public void append(int day, Number... values) {
+        if (values.length != this.columns) {
+            throw new IllegalArgumentException("Expected " + this.columns + " values, got " + values.length + ".");
+        }
+        checkWriter();
+        if (this.closed) {
+            throw new IllegalStateException("Stats sink is closed.");
+        }
+
+        Row row = new Row(day, values.clone());
+        try {
+            while (!this.queue.offer(row, this.flushInterval, TimeUnit.MILLISECONDS)) {
+                checkWriter();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for stats writer.", e);
+        }
+        if (this.stopped && this.queue.remove(row)) {
+            // writer ended after row was queued and will not take it
+            checkWriter();
+        }
+    }
+
+    /**
+     * Throw failure of background writer, or exception if it stopped without failure.
+     */
+    private void checkWriter() {
+        if (this.failure != null) {
+            throw new UncheckedIOException("Writing of stats file failed.", this.failure);
+        }
+        if (this.stopped) {
+            throw new IllegalStateException("Stats sink is closed.");
+        }
+    }
+
+    /**
+     * Copy rows appended so far to another file and end it with averages line.
+     * Only sinks writing plain (not gzipped) files can be exported.
+     *
+     * @param target Path of copy, gzipped if name ends with .gz.
+     * @return Future completed when copy is written, or exceptionally if sink is closed or writing failed.
+     */
+    public CompletableFuture<Void> exportTo(Path target) {
+        Export export = new Export(target);
+        if (this.path.getFileName().toString().endsWith(".gz")) {
+            export.result.completeExceptionally(new IOException("Gzipped stats file cannot be exported."));
+        } else if (this.closed || this.stopped) {
+            export.result.completeExceptionally(stoppedException());
+        } else if (!this.queue.offer(export)) {
+            export.result.completeExceptionally(new IOException("Too many statistics wait to be written, try later."));
+        } else if (this.stopped && this.queue.remove(export)) {
+            // writer ended after export was queued and will not take it
+            export.result.completeExceptionally(stoppedException());
+        }
+        return export.result;
+    }
+
+    /**
+     * Return count of rows written to file.
+     */
+    public long getRowsCount() {
+        return this.rows;
+    }
+
+    /**
+     * Write queued rows and averages line, then close file.
+     *
+     * @throws IOException If writing of any row failed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            try {
+                boolean queued = false;
+                while (!queued && !this.stopped) {
+                    // queue may be full, writer ends on failure without taking it
+                    queued = this.queue.offer(CLOSE, this.flushInterval, TimeUnit.MILLISECONDS);
+                }
+                this.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while closing stats file.", e);
+            }
+        }
+        if (this.failure != null) {
+            throw this.failure;
+        }
+    }
+
+    private void writeLoop() {
+        long lastFlush = System.currentTimeMillis();
+        boolean dirty = false;
+
+        try {
+            while (true) {
+                Object item = this.queue.poll(this.flushInterval, TimeUnit.MILLISECONDS);
+
+                if (item == CLOSE) {
+                    this.csvWriter.writeAverages(averages());
+                    break;
+                } else if (item instanceof Row row) {
+                    write(row);
+                    dirty = true;
+                } else if (item instanceof Export export) {
+                    this.csvWriter.flush();
+                    export(export);
+                    dirty = false;
+                }
+
+                long now = System.currentTimeMillis();
+                if (dirty && now - lastFlush >= this.flushInterval) {
+                    this.csvWriter.flush();
+                    lastFlush = now;
+                    dirty = false;
+                }
+            }
+        } catch (IOException e) {
+            this.failure = e;
+        } catch (InterruptedException e) {
+            this.failure = new IOException("Stats writer was interrupted.", e);
+        } finally {
+            try {
+                this.csvWriter.close();
+            } catch (IOException e) {
+                if (this.failure == null) {
+                    this.failure = e;
+                }
+            }
+            this.stopped = true;
+            // drop rows which will not be written and release waiting exports
+            for (Object item = this.queue.poll(); item != null; item = this.queue.poll()) {
+                if (item instanceof Export export) {
+                    export.result.completeExceptionally(stoppedException());
+                }
+            }
+        }
+    }
+
+    private IOException stoppedException() {
+        return this.failure != null ? this.failure : new IOException("Stats sink is closed.");
+    }
+
+    private void write(Row row) throws IOException {
+        List<String> data = new ArrayList<>(this.columns + 1);
+        data.add(Integer.toString(row.day));
+        for (int i = 0; i < this.columns; i++) {
+            data.add(row.values[i].toString());
+            this.sums[i] += row.values[i].doubleValue();
+        }
+        this.csvWriter.writeData(data);
+        this.rows++;
+    }
+
+    private void export(Export export) {
+        try (Writer writer = open(export.target)) {
+            try (var reader = Files.newBufferedReader(this.path, StandardCharsets.UTF_8)) {
+                reader.transferTo(writer);
+            }
+            CSVWriter copy = new CSVWriter(writer);
+            copy.writeAverages(averages());
+            copy.flush();
+            export.result.complete(null);
+        } catch (IOException e) {
+            export.result.completeExceptionally(e);
+        }
+    }
+
+    private List<Number> averages() {
+        List<Number> averages = new ArrayList<>(this.columns);
+        for (double sum : this.sums) {
+            averages.add((float) (sum / Math.max(this.rows, 1)));
+        }
+        return averages;
+    }
+}
@@ -1,15 +1,19 @@
 package agh.idec.oop.utils;
 
+import agh.idec.oop.Vector2D;
 import agh.idec.oop.World;
 import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
+import agh.idec.oop.element.Genome;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
- * Gather information from World and pass it to graphic interface.
+ * Gather information from World and pass it to graphic interface.<br>
+ * Sums of energy and children are kept by {@link AnimalStore} and life lengths are computed from birth days,
+ * so collecting statistics does not scan animals.
  */
 public class WorldInformationLogger {
 
@@ -21,149 +25,96 @@ public class WorldInformationLogger {
     private float averageEnergy = 0;
 
     private float averageAnimalsLifeLength = 0;
-    private int deadAnimalsLifeLength = 0;
+    private long deadAnimalsLifeLength = 0;
     private int deadAnimalsCount = 0;
-    private final HashMap<Animal, Integer> animalsLifeLengths = new HashMap<>();
 
     private float averageChildrenCount = 0;
-    private final HashMap<Animal, Integer> animalsChildrenCount = new HashMap<>();
 
-    private List<Integer> dominantGenotype;
+    private Genome dominantGenotype;
 
     public WorldInformationLogger(World world) {
         this.world = world;
-
-        for (Animal animal : this.world.getMap().getAnimals()) {
-            this.startLife(animal);
-        }
     }
 
     /**
      * Collect information from world.
      */
     public void log() {
-        this.setAnimalsCount();
-        this.setPlantsCount();
-        this.setAverageEnergy();
-        this.setAverageLifeLength();
-        this.setAverageChildrenCount();
-        this.dominantGenotype();
-    }
+        AnimalStore animals = this.world.getMap().getAnimalStore();
 
-    /**
-     * Inform logger about next day.
-     */
-    public void nextDay() {
-        this.animalsLifeLengths.forEach((animal, old) -> this.animalsLifeLengths.replace(animal, old + 1));
-    }
+        this.animalsCount = animals.size();
+        this.plantsCount = this.world.getMap().getPlants().size();
 
-    /**
-     * Calculate average energy of living animals.
-     */
-    private void setAverageEnergy() {
-        float sumEnergy = 0;
-        for (Animal animal : this.world.getMap().getAnimals()) {
-            sumEnergy += animal.getEnergy();
-        }
         if (this.animalsCount != 0) {
-            this.averageEnergy = sumEnergy / this.animalsCount;
+            this.averageEnergy = (float) (animals.getTotalEnergy() / this.animalsCount);
+            this.averageChildrenCount = (float) animals.getTotalChildren() / this.animalsCount;
         } else {
             this.averageEnergy = 0;
+            this.averageChildrenCount = 0;
         }
-    }
-
-    /**
-     * Calculate count of living animals.
-     */
-    private void setAnimalsCount() {
-        this.animalsCount = this.world.getMap().getAnimals().size();
-    }
-
-    /**
-     * Calculate count of plants.
-     */
-    private void setPlantsCount() {
-        this.plantsCount = this.world.getMap().getPlants().size();
-    }
 
-    /**
-     * Calculate average life of dead animals.
-     */
-    private void setAverageLifeLength() {
         if (this.deadAnimalsCount > 0) {
-            this.averageAnimalsLifeLength = (float) this.deadAnimalsLifeLength / deadAnimalsCount;
+            this.averageAnimalsLifeLength = (float) this.deadAnimalsLifeLength / this.deadAnimalsCount;
         } else {
             this.averageAnimalsLifeLength = 0;
         }
-    }
-
-    /**
-     * Calculate average children per animal.
-     */
-    private void setAverageChildrenCount() {
-        int sum = 0;
-        for (int i : this.animalsChildrenCount.values())
-            sum += i;
 
-        if (this.animalsChildrenCount.size() != 0) {
-            this.averageChildrenCount = (float) sum / this.animalsChildrenCount.size();
-        } else {
-            this.averageChildrenCount = 0;
-        }
+        this.dominantGenotype();
     }
 
     /**
      * Get dominant genotype of living animals.
      */
     private void dominantGenotype() {
-        HashMap<List<Integer>, Integer> genotypes = new HashMap<>();
-        for (Animal animal : this.world.getMap().getAnimals()) {
-            Integer count = genotypes.get(animal.getGenotype());
-            if (count != null) {
-                genotypes.replace(animal.getGenotype(), count + 1);
-            } else {
-                genotypes.put(animal.getGenotype(), 1);
-            }
-        }
-        Map.Entry<List<Integer>, Integer> dominant = null;
-        for (Map.Entry<List<Integer>, Integer> entry : genotypes.entrySet()) {
-            if (dominant == null || entry.getValue() > dominant.getValue()) {
-                dominant = entry;
-            }
-        }
-
-        this.dominantGenotype = new ArrayList<>(dominant != null ? dominant.getKey() : new ArrayList<>());
+        this.dominantGenotype = this.world.getMap().getAnimalStore().getGenotypeIndex().getDominant();
     }
 
     /**
-     * Inform logger about new child.
+     * Inform logger about dead animal, it has to be called before animal is removed from map.
      *
-     * @param animal Newborn animal.
+     * @param animal Animal that ended life.
      */
-    public void newChild(Animal animal) {
-        this.animalsChildrenCount.replace(animal, this.animalsChildrenCount.get(animal) + 1);
+    public void endLife(Animal animal) {
+        this.deadAnimalsCount++;
+        this.deadAnimalsLifeLength += this.world.getMap().getAnimalStore().getDay() - animal.getBirthDay();
     }
 
     /**
-     * Inform logger about new animal.
+     * Write aggregates and values collected by last {@link #log()} to checkpoint.
      *
-     * @param animal Animal that started new life.
-     */
-    public void startLife(Animal animal) {
-        this.animalsLifeLengths.put(animal, 0);
-        this.animalsChildrenCount.put(animal, 0);
+     * @param out Checkpoint.
+     */
+    public void writeTo(CheckpointWriter out) throws IOException {
+        out.putInt(this.deadAnimalsCount);
+        out.putLong(this.deadAnimalsLifeLength);
+
+        out.putInt(this.animalsCount);
+        out.putInt(this.plantsCount);
+        out.putFloat(this.averageEnergy);
+        out.putFloat(this.averageAnimalsLifeLength);
+        out.putFloat(this.averageChildrenCount);
+        out.putBoolean(this.dominantGenotype != null);
+        if (this.dominantGenotype != null) {
+            out.putLong(this.dominantGenotype.getLow());
+            out.putLong(this.dominantGenotype.getHigh());
+        }
     }
 
     /**
-     * Inform logger about dead animal.
+     * Read state written by {@link #writeTo(CheckpointWriter)}.
      *
-     * @param animal Animal that ended life.
+     * @param in Checkpoint.
      */
-    public void endLife(Animal animal) {
-        this.deadAnimalsCount++;
-        this.deadAnimalsLifeLength += this.animalsLifeLengths.get(animal);
-        this.animalsLifeLengths.remove(animal);
-        this.animalsChildrenCount.remove(animal);
+    public void readFrom(CheckpointReader in) throws IOException {
+        this.deadAnimalsCount = in.getInt();
+        this.deadAnimalsLifeLength = in.getLong();
+
+        this.animalsCount = in.getInt();
+        this.plantsCount = in.getInt();
+        this.averageEnergy = in.getFloat();
+        this.averageAnimalsLifeLength = in.getFloat();
+        this.averageChildrenCount = in.getFloat();
+        this.dominantGenotype = in.getBoolean() ? Genome.of(in.getLong(), in.getLong()) : null;
     }
 
     /**
@@ -205,21 +156,30 @@ public class WorldInformationLogger {
      * Return dominant genotype.
      */
     public List<Integer> getGenotype() {
+        return dominantGenotype != null ? dominantGenotype.asList() : List.of();
+    }
+
+    /**
+     * Return dominant genome or null if there are no animals.
+     */
+    public Genome getDominantGenome() {
         return dominantGenotype;
     }
 
+    /**
+     * Return positions of living animals with dominant genotype (as collected by last {@link #log()}).
+     */
+    public Set<Vector2D> getDominantPositions() {
+        return this.world.getMap().getAnimalStore().getGenotypeIndex().getPositions(this.dominantGenotype);
+    }
+
     /**
      * Return dominant genotype as String.
      */
     public String getDominantGenotype() {
-        StringBuilder stringBuilder = new StringBuilder();
-        if (this.dominantGenotype != null) {
-            for (int gene : dominantGenotype) {
-                stringBuilder.append(gene);
-            }
-        } else {
+        if (this.dominantGenotype == null) {
             return "";
         }
-        return stringBuilder.toString();
+        return this.dominantGenotype.toString();
     }
 }
@@ -0,0 +1,115 @@
+package agh.idec.oop;
+
+import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
+import agh.idec.oop.element.Plant;
+import agh.idec.oop.utils.WorldInformationLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * World loaded from checkpoint has to continue exactly as the saved one.
+ */
+class WorldCheckpointTest {
+    private static final int DAYS_BEFORE_SAVE = 50;
+    private static final int DAYS_AFTER_SAVE = 200;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadedWorldContinuesAsSavedOne() throws IOException {
+        assertContinuesAfterLoad(new World(0, false, 60, 40, 0.3f, 30, 40, 1, 40, 10, 10, false, 7));
+    }
+
+    @Test
+    void loadedWrapAroundWorldContinuesAsSavedOne() throws IOException {
+        assertContinuesAfterLoad(new World(0, true, 60, 40, 0.3f, 30, 40, 1, 40, 10, 10, false, 7));
+    }
+
+    @Test
+    void loadedMagicWorldContinuesAsSavedOne() throws IOException {
+        // world starts with five animals, so magic day happens before it is saved
+        assertContinuesAfterLoad(new World(0, true, 60, 40, 0.3f, 5, 40, 1, 40, 10, 10, true, 11));
+    }
+
+    @Test
+    void loadedChunkedWorldContinuesAsSavedOne() throws IOException {
+        // plants are rare on such a large map, animals live on their start energy
+        assertContinuesAfterLoad(new World(0, false, 2100, 2000, 0.1f, 30, 1000, 1, 40, 10, 10, false, 5));
+    }
+
+    private void assertContinuesAfterLoad(World world) throws IOException {
+        for (int i = 0; i < DAYS_BEFORE_SAVE; i++) {
+            world.simulateDay();
+        }
+
+        Path path = this.directory.resolve("world.ck");
+        world.save(path);
+        World loaded = World.load(path);
+        assertSameState(world, loaded);
+
+        for (int i = 0; i < DAYS_AFTER_SAVE; i++) {
+            world.simulateDay();
+            loaded.simulateDay();
+            assertSameState(world, loaded);
+        }
+    }
+
+    private static void assertSameState(World expected, World actual) {
+        int day = expected.getDay();
+        assertEquals(day, actual.getDay());
+        assertEquals(expected.getMagicDay(), actual.getMagicDay(), "magic days at day " + day);
+
+        WorldInformationLogger expectedLogger = expected.getLogger();
+        WorldInformationLogger actualLogger = actual.getLogger();
+        assertEquals(expectedLogger.getAnimalsCount(), actualLogger.getAnimalsCount(), "animals at day " + day);
+        assertEquals(expectedLogger.getPlantsCount(), actualLogger.getPlantsCount(), "plants at day " + day);
+        assertEquals(expectedLogger.getAverageEnergy(), actualLogger.getAverageEnergy(),
+                "average energy at day " + day);
+        assertEquals(expectedLogger.getAverageAnimalsLifeLength(), actualLogger.getAverageAnimalsLifeLength(),
+                "average life length at day " + day);
+        assertEquals(expectedLogger.getAverageChildrenCount(), actualLogger.getAverageChildrenCount(),
+                "average children count at day " + day);
+        assertEquals(expectedLogger.getDominantGenome(), actualLogger.getDominantGenome(),
+                "dominant genome at day " + day);
+
+        AnimalStore expectedStore = expected.getMap().getAnimalStore();
+        AnimalStore actualStore = actual.getMap().getAnimalStore();
+        assertEquals(expectedStore.size(), actualStore.size(), "store size at day " + day);
+        assertEquals(expectedStore.getDay(), actualStore.getDay());
+        assertEquals(expectedStore.getTotalEnergy(), actualStore.getTotalEnergy(), "total energy at day " + day);
+        assertEquals(expectedStore.getTotalChildren(), actualStore.getTotalChildren(), "total children at day " + day);
+        for (int slot = 0; slot < expectedStore.size(); slot++) {
+            Animal expectedAnimal = expectedStore.get(slot);
+            Animal actualAnimal = actualStore.get(slot);
+            String row = "slot " + slot + " at day " + day;
+            assertEquals(expectedAnimal.getId(), actualAnimal.getId(), row);
+            assertEquals(expectedAnimal.getX(), actualAnimal.getX(), row);
+            assertEquals(expectedAnimal.getY(), actualAnimal.getY(), row);
+            assertEquals(expectedStore.getEnergy(slot), actualStore.getEnergy(slot), row);
+            assertEquals(expectedStore.getChildren(slot), actualStore.getChildren(slot), row);
+            assertEquals(expectedStore.getBirthDay(slot), actualStore.getBirthDay(slot), row);
+            assertEquals(expectedStore.getGenome(slot), actualStore.getGenome(slot), row);
+        }
+
+        assertEquals(plantPositions(expected), plantPositions(actual), "plants at day " + day);
+    }
+
+    private static List<String> plantPositions(World world) {
+        List<String> positions = new ArrayList<>();
+        for (Plant plant : world.getMap().getPlants()) {
+            positions.add(plant.getPosition().toString());
+        }
+        Collections.sort(positions);
+        return positions;
+    }
+}
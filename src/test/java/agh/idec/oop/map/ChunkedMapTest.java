@@ -0,0 +1,144 @@
+package agh.idec.oop.map;
+
+import agh.idec.oop.Vector2D;
+import agh.idec.oop.World;
+import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.Genome;
+import agh.idec.oop.element.Plant;
+import agh.idec.oop.field.Field;
+import agh.idec.oop.field.FieldType;
+import agh.idec.oop.utils.SplitRandom;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Occupancy kept by chunks has to agree with elements placed at map.
+ */
+class ChunkedMapTest {
+    @Test
+    void freeFieldsCountsMatchOccupiedFields() {
+        for (boolean wrapAround : new boolean[]{false, true}) {
+            World world = new World(0, wrapAround, 2100, 2100, 0.1f, 500, 60, 1, 40, 300, 200, false, 7);
+            assertTrue(world.getMap() instanceof ChunkedMap);
+
+            for (int day = 0; day < 100; day++) {
+                world.simulateDay();
+                if (day % 10 == 0) {
+                    assertFreeFieldsCounts(world.getMap());
+                }
+            }
+            assertFreeFieldsCounts(world.getMap());
+        }
+    }
+
+    /**
+     * Compare free fields counts of map with counts of distinct positions of its animals and plants.
+     */
+    private static void assertFreeFieldsCounts(IMap map) {
+        Set<Vector2D> occupied = new HashSet<>();
+        int[] occupiedByType = new int[FieldType.values().length];
+        for (Animal animal : map.getAnimals()) {
+            if (occupied.add(new Vector2D(animal.getX(), animal.getY()))) {
+                occupiedByType[map.typeAt(animal.getX(), animal.getY()).ordinal()]++;
+            }
+        }
+        for (Plant plant : map.getPlants()) {
+            Vector2D position = plant.getPosition();
+            if (occupied.add(position)) {
+                occupiedByType[map.typeAt(position.getX(), position.getY()).ordinal()]++;
+            }
+        }
+
+        long jungle = (long) map.getJungleWidth() * map.getJungleHeight();
+        long steppe = (long) map.getWidth() * map.getHeight() - jungle;
+        assertEquals(jungle - occupiedByType[FieldType.JUNGLE.ordinal()], map.getFreeFieldsCount(FieldType.JUNGLE));
+        assertEquals(steppe - occupiedByType[FieldType.STEPPE.ordinal()], map.getFreeFieldsCount(FieldType.STEPPE));
+    }
+
+    @Test
+    void fillingMapReturnsEveryFreeFieldOnce() {
+        // size is not a multiple of size of chunk, so chunks at edges are partial
+        ChunkedMap map = new ChunkedWrapAroundMap(21, 13, 7, 5, 1);
+        SplitRandom random = new SplitRandom(3);
+
+        Set<Vector2D> seen = new HashSet<>();
+        for (FieldType type : FieldType.values()) {
+            int area = map.getFreeFieldsCount(type);
+            int filled = 0;
+            for (Field field = map.randomFreeField(type, random); field != null;
+                 field = map.randomFreeField(type, random)) {
+                assertEquals(type, field.getType());
+                assertTrue(seen.add(field.getPosition()), "field " + field.getPosition() + " returned twice");
+                map.place(new Plant(field.getPosition()));
+                filled++;
+            }
+            assertEquals(area, filled);
+            assertEquals(0, map.getFreeFieldsCount(type));
+        }
+        assertEquals(21 * 13, seen.size());
+        assertNull(map.randomFreeField(random));
+    }
+
+    @Test
+    void readingFieldsDoesNotAllocateChunks() {
+        ChunkedMap map = new ChunkedMap(40, 30, 10, 10, 1);
+        SplitRandom random = new SplitRandom(9);
+        Field placed = map.randomFreeField(random);
+        map.place(new Plant(placed.getPosition()));
+        assertEquals(1, map.getAllocatedChunksCount());
+
+        int plants = 0;
+        for (Field field : map.getFields()) {
+            assertEquals(map.typeAt(field.getPosition().getX(), field.getPosition().getY()), field.getType());
+            if (field.hasPlant()) {
+                plants++;
+            }
+        }
+        assertEquals(1, plants);
+        for (int i = 0; i < 100; i++) {
+            map.randomFreeField(random);
+            map.getAnimalsAt(new Vector2D(random.nextInt(40), random.nextInt(30)));
+        }
+        map.toString();
+
+        assertEquals(1, map.getAllocatedChunksCount());
+    }
+
+    @Test
+    void chunksAreReleasedWhenMapIsEmptied() {
+        ChunkedMap map = new ChunkedMap(40, 30, 10, 10, 1);
+        SplitRandom random = new SplitRandom(5);
+
+        for (Field field = map.randomFreeField(random); field != null; field = map.randomFreeField(random)) {
+            map.place(new Plant(field.getPosition()));
+        }
+        List<Animal> animals = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Vector2D position = new Vector2D(random.nextInt(40), random.nextInt(30));
+            Animal animal = new Animal(map, position, Genome.random(random), 10);
+            map.place(animal);
+            animals.add(animal);
+        }
+        assertEquals(5 * 4, map.getAllocatedChunksCount());
+
+        for (Plant plant : new ArrayList<>(map.getPlants())) {
+            map.pop(plant);
+        }
+        assertTrue(map.getAllocatedChunksCount() > 0, "chunks with animals have to stay allocated");
+        for (Animal animal : animals) {
+            map.pop(animal);
+        }
+
+        assertEquals(0, map.getAllocatedChunksCount());
+        assertEquals(10 * 10, map.getFreeFieldsCount(FieldType.JUNGLE));
+        assertEquals(40 * 30 - 10 * 10, map.getFreeFieldsCount(FieldType.STEPPE));
+    }
+}
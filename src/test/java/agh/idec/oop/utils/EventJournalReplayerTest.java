@@ -0,0 +1,121 @@
+package agh.idec.oop.utils;
+
+import agh.idec.oop.World;
+import agh.idec.oop.element.Animal;
+import agh.idec.oop.element.AnimalStore;
+import agh.idec.oop.element.Plant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Replayed days have to be the same as days of recorded run.
+ */
+class EventJournalReplayerTest {
+    private static final int DAYS = 300;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayedDaysAreTheSameAsRecordedOnes() throws IOException {
+        // world starts with five animals, so the first recorded day is a magic day
+        World world = new World(0, true, 60, 40, 0.3f, 5, 40, 1, 40, 10, 10, true, 7);
+        Path journal = this.directory.resolve("run.journal");
+
+        Map<Integer, String> states = new HashMap<>();
+        world.startJournal(journal);
+        world.getLogger().log();
+        states.put(world.getDay(), state(world));
+        for (int i = 0; i < DAYS; i++) {
+            world.simulateDay();
+            world.getLogger().log();
+            states.put(world.getDay(), state(world));
+        }
+        world.stopJournal();
+        assertTrue(world.getMagicDay() > 0, "magic day has to be recorded");
+
+        try (EventJournalReplayer replayer = new EventJournalReplayer(journal)) {
+            assertEquals(0, replayer.getFirstDay());
+            assertEquals(DAYS, replayer.getLastDay());
+
+            do {
+                assertEquals(states.get(replayer.getDay()), state(replayer.getWorld()),
+                        "state at day " + replayer.getDay());
+            } while (replayer.nextDay());
+            assertFalse(replayer.nextDay());
+
+            replayer.seek(DAYS / 3);
+            assertEquals(DAYS / 3, replayer.getDay());
+            assertEquals(states.get(DAYS / 3), state(replayer.getWorld()), "state after seeking back");
+
+            replayer.seek(DAYS / 2);
+            assertEquals(states.get(DAYS / 2), state(replayer.getWorld()), "state after seeking forward");
+        }
+    }
+
+    @Test
+    void journalStartedLaterBeginsAtDayOfItsCheckpoint() throws IOException {
+        World world = new World(0, false, 60, 40, 0.3f, 30, 40, 1, 40, 10, 10, false, 3);
+        for (int i = 0; i < 20; i++) {
+            world.simulateDay();
+        }
+        Path journal = this.directory.resolve("later.journal");
+        world.startJournal(journal);
+        for (int i = 0; i < 50; i++) {
+            world.simulateDay();
+        }
+        world.stopJournal();
+        world.getLogger().log();
+
+        try (EventJournalReplayer replayer = new EventJournalReplayer(journal)) {
+            assertEquals(20, replayer.getFirstDay());
+            assertEquals(70, replayer.getLastDay());
+            replayer.seek(70);
+            assertEquals(state(world), state(replayer.getWorld()));
+        }
+    }
+
+    /**
+     * Describe state of world: every row of animal store, positions of plants and statistics of logger.
+     */
+    private static String state(World world) {
+        StringBuilder builder = new StringBuilder();
+        AnimalStore store = world.getMap().getAnimalStore();
+        for (int slot = 0; slot < store.size(); slot++) {
+            Animal animal = store.get(slot);
+            builder.append(animal.getId()).append(' ')
+                    .append(animal.getX()).append(',').append(animal.getY()).append(' ')
+                    .append(Float.floatToIntBits(store.getEnergy(slot))).append(' ')
+                    .append(store.getChildren(slot)).append(' ')
+                    .append(store.getBirthDay(slot)).append(' ')
+                    .append(store.getGenome(slot)).append('\n');
+        }
+
+        List<String> plants = new ArrayList<>();
+        for (Plant plant : world.getMap().getPlants()) {
+            plants.add(plant.getPosition().toString());
+        }
+        Collections.sort(plants);
+        builder.append(plants).append('\n');
+
+        WorldInformationLogger logger = world.getLogger();
+        builder.append(logger.getAnimalsCount()).append(' ')
+                .append(logger.getPlantsCount()).append(' ')
+                .append(logger.getAverageEnergy()).append(' ')
+                .append(logger.getAverageAnimalsLifeLength()).append(' ')
+                .append(logger.getAverageChildrenCount());
+        return builder.toString();
+    }
+}